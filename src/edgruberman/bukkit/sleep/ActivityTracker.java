@@ -0,0 +1,595 @@
+package edgruberman.bukkit.sleep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.enchantment.EnchantItemEvent;
+import org.bukkit.event.enchantment.PrepareItemEnchantEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.inventory.InventoryEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.vehicle.VehicleEvent;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+
+import edgruberman.bukkit.sleep.util.CustomLevel;
+import edgruberman.bukkit.sleep.util.Profiler;
+
+/**
+ * server wide record of player activity shared by all worlds; each monitored
+ * event type is registered once and owns a column in a primitive array with
+ * one row for each online player, so recording activity is a single write.
+ * worlds {@link #subscribe subscribe} with their own idle threshold and
+ * activities, and each subscription keeps a binary min-heap of idle deadlines
+ * for only the players currently in its world, checked once per tick so only
+ * players whose deadline has passed are examined; activity from asynchronous
+ * events is queued without locking and recorded on the main thread during
+ * the next tick
+ */
+public final class ActivityTracker implements Listener, EventExecutor, Runnable {
+
+    /** prefixes tried in order to resolve an activity event name */
+    private static final String[] PACKAGES = {
+          "", "org.bukkit.event.player.", "org.bukkit.event.inventory.", "org.bukkit.event.enchantment."
+        , "org.bukkit.event.block.", "org.bukkit.event.entity.", "org.bukkit.event.vehicle.", "edgruberman.bukkit.playeractivity."
+    };
+
+    /** event types a player can be identified from */
+    private static final Class<?>[] SUPPORTED = {
+          PlayerEvent.class, InventoryEvent.class, EnchantItemEvent.class, PrepareItemEnchantEvent.class
+        , BlockBreakEvent.class, BlockPlaceEvent.class, EntityEvent.class, VehicleEvent.class
+    };
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** heap position of a slot not in a subscription heap */
+    private static final int ABSENT = -1;
+
+    private final Plugin plugin;
+    private final Map<Class<? extends Event>, Column> types = new ConcurrentHashMap<Class<? extends Event>, Column>(); // read from asynchronous events
+    private final Map<World, List<Subscription>> subscriptions = new HashMap<World, List<Subscription>>();
+    private final Queue<Handoff> asynchronous = new ConcurrentLinkedQueue<Handoff>();
+    private final Clock.Task task = new Clock.Task(this);
+
+    private Column[] columns = new Column[0];
+    private final Map<UUID, Integer> slots = new HashMap<UUID, Integer>();
+    private Player[] players = new Player[ActivityTracker.INITIAL_CAPACITY];
+    private int[] idle = new int[ActivityTracker.INITIAL_CAPACITY]; // subscriptions player is idle in
+    private int[] free = new int[ActivityTracker.INITIAL_CAPACITY];
+    private int freed = 0;
+    private int allocated = 0;
+
+    /** tick of last activity, row for each slot and column for each event type */
+    private long[] last = new long[0];
+
+    ActivityTracker(final Plugin plugin) {
+        this.plugin = plugin;
+        for (final Player player : Bukkit.getOnlinePlayers()) this.allocate(player, Main.clock.now());
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        Main.clock.repeat(null, this.task, 1, 1);
+    }
+
+    /**
+     * monitor idle status for players in a world
+     * @param threshold ticks without activity before a player is considered idle
+     */
+    public Subscription subscribe(final World world, final long threshold, final Subscriber subscriber) {
+        final Subscription subscription = new Subscription(world, threshold, subscriber);
+
+        List<Subscription> existing = this.subscriptions.get(world);
+        if (existing == null) {
+            existing = new ArrayList<Subscription>();
+            this.subscriptions.put(world, existing);
+        }
+        existing.add(subscription);
+
+        return subscription;
+    }
+
+    void unload() {
+        this.task.cancel();
+        this.asynchronous.clear();
+
+        for (final List<Subscription> world : new ArrayList<List<Subscription>>(this.subscriptions.values()))
+            for (final Subscription subscription : new ArrayList<Subscription>(world))
+                subscription.cancel();
+
+        for (final Column column : this.types.values()) HandlerList.unregisterAll(column);
+        HandlerList.unregisterAll(this);
+        this.types.clear();
+        this.slots.clear();
+        Arrays.fill(this.players, null);
+    }
+
+    @Override
+    public void execute(final Listener listener, final Event event) {
+        final long start = Profiler.start();
+        try {
+            final Column column = this.column(event.getClass());
+            if (column == null) return;
+
+            final Player player = ActivityTracker.player(event);
+            if (player == null) return;
+
+            if (event.isAsynchronous()) {
+                this.asynchronous.offer(new Handoff(player, column));
+                return;
+            }
+
+            this.record(player, column);
+        } finally {
+            Profiler.record(null, ActivityTracker.class, start);
+        }
+    }
+
+    /** record activity handed off from asynchronous events */
+    @Override
+    public void run() {
+        Handoff handoff;
+        while ((handoff = this.asynchronous.poll()) != null) {
+            if (this.types.get(handoff.column.type) != handoff.column) continue; // no longer monitored
+            this.record(handoff.player, handoff.column);
+        }
+    }
+
+    private Column column(final Class<?> type) {
+        for (Class<?> c = type; c != null && c != Event.class; c = c.getSuperclass()) {
+            final Column column = this.types.get(c);
+            if (column != null) return column;
+        }
+        return null;
+    }
+
+    private void record(final Player player, final Column column) {
+        final Integer slot = this.slots.get(player.getUniqueId());
+        if (slot == null) return;
+
+        this.last[slot * this.columns.length + column.index] = Main.clock.now();
+        if (this.idle[slot] == 0) return;
+
+        final List<Subscription> subscriptions = this.subscriptions.get(player.getWorld());
+        if (subscriptions == null) return;
+        for (final Subscription subscription : new ArrayList<Subscription>(subscriptions))
+            subscription.active(slot, column);
+    }
+
+    /** @return most recent activity tick for a slot across columns monitored */
+    private long last(final int slot, final boolean[] monitored) {
+        final int row = slot * this.columns.length;
+        long latest = Long.MIN_VALUE;
+        for (int column = 0; column < monitored.length; column++)
+            if (monitored[column] && this.last[row + column] > latest)
+                latest = this.last[row + column];
+
+        return latest;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST) // before sleep state adds player
+    public void onPlayerJoin(final PlayerJoinEvent join) {
+        if (this.slots.containsKey(join.getPlayer().getUniqueId())) return;
+        final int slot = this.allocate(join.getPlayer(), Main.clock.now());
+        this.enter(join.getPlayer().getWorld(), slot);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST) // before sleep state adds player to new world
+    public void onPlayerChangedWorld(final PlayerChangedWorldEvent changed) {
+        final Integer slot = this.slots.get(changed.getPlayer().getUniqueId());
+        if (slot == null) return;
+        this.leave(changed.getFrom(), slot);
+        this.enter(changed.getPlayer().getWorld(), slot);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent quit) {
+        final Integer slot = this.slots.remove(quit.getPlayer().getUniqueId());
+        if (slot == null) return;
+        this.leave(quit.getPlayer().getWorld(), slot);
+        this.players[slot] = null;
+        this.free[this.freed++] = slot;
+    }
+
+    private void enter(final World world, final int slot) {
+        final List<Subscription> subscriptions = this.subscriptions.get(world);
+        if (subscriptions == null) return;
+        for (final Subscription subscription : subscriptions) subscription.add(slot);
+    }
+
+    private void leave(final World world, final int slot) {
+        final List<Subscription> subscriptions = this.subscriptions.get(world);
+        if (subscriptions == null) return;
+        for (final Subscription subscription : subscriptions) subscription.remove(slot);
+    }
+
+    private int allocate(final Player player, final long now) {
+        final int slot;
+        if (this.freed > 0) {
+            slot = this.free[--this.freed];
+        } else {
+            if (this.allocated == this.players.length) this.grow();
+            slot = this.allocated++;
+        }
+
+        this.slots.put(player.getUniqueId(), slot);
+        this.players[slot] = player;
+        this.idle[slot] = 0;
+        Arrays.fill(this.last, slot * this.columns.length, (slot + 1) * this.columns.length, now);
+        return slot;
+    }
+
+    private void grow() {
+        final int capacity = this.players.length * 2;
+        this.players = Arrays.copyOf(this.players, capacity);
+        this.idle = Arrays.copyOf(this.idle, capacity);
+        this.free = Arrays.copyOf(this.free, capacity);
+        this.last = Arrays.copyOf(this.last, capacity * this.columns.length);
+        for (final List<Subscription> world : this.subscriptions.values())
+            for (final Subscription subscription : world)
+                subscription.grow(capacity);
+    }
+
+    /** @return column for event type, registering the event if not already monitored */
+    private Column acquire(final String name) throws ClassNotFoundException {
+        final Class<? extends Event> type = ActivityTracker.resolve(name);
+        Column column = this.types.get(type);
+        if (column == null) {
+            column = new Column(type, this.open());
+            try {
+                Bukkit.getPluginManager().registerEvent(type, column, EventPriority.LOW, this, this.plugin, true);
+            } catch (final RuntimeException e) {
+                throw new IllegalArgumentException("Unable to monitor " + type.getName() + "; " + e.getMessage(), e);
+            }
+
+            // claim column only after registration succeeds so a failed type is never reused
+            this.columns[column.index] = column;
+            this.types.put(type, column);
+        }
+
+        column.subscriptions++;
+        return column;
+    }
+
+    /** stop monitoring event type when no subscription remains for it */
+    private void release(final Column column) {
+        if (--column.subscriptions > 0) return;
+
+        this.types.remove(column.type);
+        this.columns[column.index] = null;
+        try {
+            ((HandlerList) column.type.getMethod("getHandlerList").invoke(null)).unregister(column);
+        } catch (final Exception e) {
+            this.plugin.getLogger().log(Level.WARNING, "Unable to stop monitoring activity {0}; {1}", new Object[] { column.type.getSimpleName(), e });
+            this.plugin.getLogger().log(CustomLevel.DEBUG, "Exception detail", e);
+        }
+    }
+
+    /** @return unused column index, widening each row when all columns are used */
+    private int open() {
+        final long now = Main.clock.now();
+        for (int index = 0; index < this.columns.length; index++)
+            if (this.columns[index] == null) {
+                for (int slot = 0; slot < this.allocated; slot++) this.last[slot * this.columns.length + index] = now;
+                return index;
+            }
+
+        final int previous = this.columns.length;
+        final int width = previous + 1;
+        final long[] widened = new long[this.players.length * width];
+        for (int slot = 0; slot < this.allocated; slot++) {
+            System.arraycopy(this.last, slot * previous, widened, slot * width, previous);
+            widened[slot * width + previous] = now;
+        }
+        this.last = widened;
+        this.columns = Arrays.copyOf(this.columns, width);
+
+        for (final List<Subscription> world : this.subscriptions.values())
+            for (final Subscription subscription : world)
+                subscription.widen(width);
+
+        return previous;
+    }
+
+
+
+    private static Class<? extends Event> resolve(final String name) throws ClassNotFoundException {
+        for (final String prefix : ActivityTracker.PACKAGES) {
+            final Class<?> found;
+            try {
+                found = Class.forName(prefix + name);
+            } catch (final ClassNotFoundException e) {
+                continue;
+            }
+
+            if (!Event.class.isAssignableFrom(found)) continue;
+            for (final Class<?> supported : ActivityTracker.SUPPORTED)
+                if (supported.isAssignableFrom(found))
+                    return found.asSubclass(Event.class);
+
+            throw new IllegalArgumentException("Player can not be identified from " + found.getName());
+        }
+
+        throw new ClassNotFoundException(name);
+    }
+
+    /** @return player responsible for event; null if not a player */
+    private static Player player(final Event event) {
+        if (event instanceof PlayerEvent) return ((PlayerEvent) event).getPlayer();
+        if (event instanceof InventoryEvent) return ActivityTracker.player(((InventoryEvent) event).getView().getPlayer());
+        if (event instanceof EnchantItemEvent) return ((EnchantItemEvent) event).getEnchanter();
+        if (event instanceof PrepareItemEnchantEvent) return ((PrepareItemEnchantEvent) event).getEnchanter();
+        if (event instanceof BlockBreakEvent) return ((BlockBreakEvent) event).getPlayer();
+        if (event instanceof BlockPlaceEvent) return ((BlockPlaceEvent) event).getPlayer();
+        if (event instanceof EntityEvent) return ActivityTracker.player(((EntityEvent) event).getEntity());
+        if (event instanceof VehicleEvent) return ActivityTracker.player(((VehicleEvent) event).getVehicle().getPassenger());
+        return null;
+    }
+
+    private static Player player(final Entity entity) {
+        return ( entity instanceof Player ? (Player) entity : null );
+    }
+
+
+
+    /** monitored event type; registered as its own listener so releasing it leaves the tracker's player handlers in place */
+    private static final class Column implements Listener {
+
+        private final Class<? extends Event> type;
+        private final int index;
+        private int subscriptions = 0;
+
+        private Column(final Class<? extends Event> type, final int index) {
+            this.type = type;
+            this.index = index;
+        }
+
+    }
+
+
+
+    /** activity from an asynchronous event awaiting the main thread */
+    private static final class Handoff {
+
+        private final Player player;
+        private final Column column;
+
+        private Handoff(final Player player, final Column column) {
+            this.player = player;
+            this.column = column;
+        }
+
+    }
+
+
+
+    /** idle status of players in a world for a threshold and set of activities */
+    public final class Subscription implements Runnable {
+
+        private final World world;
+        private final long threshold;
+        private final Subscriber subscriber;
+        private final Clock.Task task = new Clock.Task(this);
+        private final List<Column> activities = new ArrayList<Column>();
+        private boolean[] monitored = new boolean[ActivityTracker.this.columns.length];
+
+        private long[] deadline = new long[ActivityTracker.this.players.length];
+        private int[] position = new int[ActivityTracker.this.players.length];
+        private boolean[] present = new boolean[ActivityTracker.this.players.length]; // player in world; idle when present and not in heap
+
+        /** slots ordered by deadline; a deadline is only ever earlier than or equal to the actual deadline from last activity */
+        private int[] heap = new int[ActivityTracker.this.players.length];
+        private int size = 0;
+
+        private Subscription(final World world, final long threshold, final Subscriber subscriber) {
+            this.world = world;
+            this.threshold = Math.max(1, threshold);
+            this.subscriber = subscriber;
+
+            for (final Player player : world.getPlayers()) {
+                final Integer slot = ActivityTracker.this.slots.get(player.getUniqueId());
+                if (slot != null) this.add(slot);
+            }
+
+            Main.clock.repeat(this.world, this.task, 1, 1);
+        }
+
+        /**
+         * monitor an event for player activity
+         * @param name simple class name of a Bukkit event or fully qualified class name
+         * @throws ClassNotFoundException when no event with the name exists
+         * @throws IllegalArgumentException when a player can not be identified from the event
+         */
+        public void addActivity(final String name) throws ClassNotFoundException {
+            final Column column = ActivityTracker.this.acquire(name);
+            if (this.monitored[column.index]) {
+                ActivityTracker.this.release(column);
+                return;
+            }
+
+            this.monitored[column.index] = true;
+            this.activities.add(column);
+        }
+
+        public int getActivityCount() {
+            return this.activities.size();
+        }
+
+        public long getThreshold() {
+            return this.threshold;
+        }
+
+        /** @return true if player is in world and has not generated monitored activity within threshold */
+        public boolean isIdle(final Player player) {
+            final Integer slot = ActivityTracker.this.slots.get(player.getUniqueId());
+            return slot != null && this.present[slot] && this.position[slot] == ActivityTracker.ABSENT;
+        }
+
+        public void cancel() {
+            this.task.cancel();
+
+            final List<Subscription> existing = ActivityTracker.this.subscriptions.get(this.world);
+            if (existing == null || !existing.remove(this)) return;
+            if (existing.isEmpty()) ActivityTracker.this.subscriptions.remove(this.world);
+
+            for (int slot = 0; slot < this.present.length; slot++)
+                if (this.present[slot]) this.remove(slot);
+
+            for (final Column column : this.activities) ActivityTracker.this.release(column);
+            this.activities.clear();
+        }
+
+        /** check idle deadlines that have passed */
+        @Override
+        public void run() {
+            if (this.activities.isEmpty()) return;
+
+            final long now = Main.clock.now();
+            while (this.size > 0) {
+                final int slot = this.heap[0];
+                if (this.deadline[slot] > now) break;
+
+                // activity since deadline was placed moves it later
+                final long last = ActivityTracker.this.last(slot, this.monitored);
+                if (last + this.threshold > now) {
+                    this.deadline[slot] = last + this.threshold;
+                    this.siftDown(0);
+                    continue;
+                }
+
+                this.removeAt(0);
+                ActivityTracker.this.idle[slot]++;
+                this.subscriber.onIdle(ActivityTracker.this.players[slot], now - last);
+            }
+        }
+
+        /** player entered world; already idle without notification if last activity is beyond threshold */
+        private void add(final int slot) {
+            this.present[slot] = true;
+            final long now = Main.clock.now();
+            final long last = ActivityTracker.this.last(slot, this.monitored);
+            if (this.activities.isEmpty() || last + this.threshold > now) {
+                this.deadline[slot] = ( this.activities.isEmpty() ? now : last ) + this.threshold;
+                this.push(slot);
+                return;
+            }
+
+            this.position[slot] = ActivityTracker.ABSENT;
+            ActivityTracker.this.idle[slot]++;
+        }
+
+        /** player left world */
+        private void remove(final int slot) {
+            if (!this.present[slot]) return;
+            this.present[slot] = false;
+
+            if (this.position[slot] != ActivityTracker.ABSENT) {
+                this.removeAt(this.position[slot]);
+                return;
+            }
+
+            ActivityTracker.this.idle[slot]--;
+        }
+
+        /** idle player generated activity */
+        private void active(final int slot, final Column column) {
+            if (!this.present[slot] || this.position[slot] != ActivityTracker.ABSENT || !this.monitored[column.index]) return;
+
+            this.deadline[slot] = Main.clock.now() + this.threshold;
+            this.push(slot);
+            ActivityTracker.this.idle[slot]--;
+            this.subscriber.onActive(ActivityTracker.this.players[slot], column.type);
+        }
+
+        private void grow(final int capacity) {
+            this.deadline = Arrays.copyOf(this.deadline, capacity);
+            this.position = Arrays.copyOf(this.position, capacity);
+            this.present = Arrays.copyOf(this.present, capacity);
+            this.heap = Arrays.copyOf(this.heap, capacity);
+        }
+
+        private void widen(final int width) {
+            this.monitored = Arrays.copyOf(this.monitored, width);
+        }
+
+        private void push(final int slot) {
+            this.heap[this.size] = slot;
+            this.position[slot] = this.size;
+            this.siftUp(this.size++);
+        }
+
+        private void removeAt(final int index) {
+            final int removed = this.heap[index];
+            this.position[removed] = ActivityTracker.ABSENT;
+            if (--this.size == index) return;
+
+            final int moved = this.heap[this.size];
+            this.heap[index] = moved;
+            this.position[moved] = index;
+            this.siftDown(index);
+            this.siftUp(this.position[moved]);
+        }
+
+        private void siftUp(int index) {
+            final int slot = this.heap[index];
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (this.deadline[this.heap[parent]] <= this.deadline[slot]) break;
+                this.heap[index] = this.heap[parent];
+                this.position[this.heap[index]] = index;
+                index = parent;
+            }
+            this.heap[index] = slot;
+            this.position[slot] = index;
+        }
+
+        private void siftDown(int index) {
+            final int slot = this.heap[index];
+            while (true) {
+                int child = (index << 1) + 1;
+                if (child >= this.size) break;
+                if (child + 1 < this.size && this.deadline[this.heap[child + 1]] < this.deadline[this.heap[child]]) child++;
+                if (this.deadline[slot] <= this.deadline[this.heap[child]]) break;
+                this.heap[index] = this.heap[child];
+                this.position[this.heap[index]] = index;
+                index = child;
+            }
+            this.heap[index] = slot;
+            this.position[slot] = index;
+        }
+
+    }
+
+
+
+    /** receives idle state changes for players in a subscribed world */
+    public interface Subscriber {
+
+        /** @param duration ticks since last activity */
+        void onIdle(Player player, long duration);
+
+        /** idle player generated activity */
+        void onActive(Player player, Class<? extends Event> activity);
+
+    }
+
+}
@@ -0,0 +1,211 @@
+package edgruberman.bukkit.sleep;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import edgruberman.bukkit.sleep.util.CustomLevel;
+import edgruberman.bukkit.sleep.util.Profiler;
+
+/**
+ * single scheduler task that drives all time based supplement work; delayed
+ * callbacks are kept in a hierarchical timing wheel and periodic callbacks
+ * in a list for each world, both linked through the {@link Task} itself so
+ * scheduling an existing task and cancelling allocate nothing and take
+ * constant time
+ */
+public final class Clock implements Runnable {
+
+    /** slots per wheel level (2^BITS) */
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << Clock.BITS;
+    private static final int MASK = Clock.SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    /** longest delay represented directly; longer delays are placed at the limit and re-evaluated when cascaded */
+    private static final long SPAN = 1L << (Clock.BITS * Clock.LEVELS);
+
+    private final Plugin plugin;
+    private final int taskId;
+    private final Task[][] wheel = new Task[Clock.LEVELS][Clock.SLOTS];
+    private final Map<World, Task> periodic = new HashMap<World, Task>();
+    private final List<Task> due = new ArrayList<Task>();
+    private long now = 0;
+
+    Clock(final Plugin plugin) {
+        this.plugin = plugin;
+        for (int level = 0; level < Clock.LEVELS; level++)
+            for (int slot = 0; slot < Clock.SLOTS; slot++)
+                this.wheel[level][slot] = Task.head();
+
+        this.taskId = Bukkit.getScheduler().runTaskTimer(plugin, this, 1, 1).getTaskId();
+    }
+
+    /** @return ticks elapsed since clock started */
+    public long now() {
+        return this.now;
+    }
+
+    /** run task once after delay ticks (minimum of 1), replacing any existing schedule for the task */
+    public void schedule(final Task task, final long delay) {
+        task.cancel();
+        task.deadline = this.now + Math.max(1, delay);
+        task.period = 0;
+        task.world = null;
+        this.insert(task);
+    }
+
+    /** run task every period ticks for a world (null when not specific to a world), starting after delay ticks, replacing any existing schedule for the task */
+    public void repeat(final World world, final Task task, final long delay, final long period) {
+        task.cancel();
+        task.deadline = this.now + Math.max(1, delay);
+        task.period = Math.max(1, period);
+        task.world = world;
+
+        Task head = this.periodic.get(world);
+        if (head == null) {
+            head = Task.head();
+            this.periodic.put(world, head);
+        }
+        task.link(head);
+    }
+
+    /** cancel all periodic tasks for a world */
+    public void cancel(final World world) {
+        final Task head = this.periodic.remove(world);
+        if (head == null) return;
+        while (head.next != head) head.next.cancel();
+    }
+
+    void unload() {
+        Bukkit.getScheduler().cancelTask(this.taskId);
+        for (final Task[] level : this.wheel)
+            for (final Task head : level)
+                while (head.next != head) head.next.cancel();
+
+        for (final Task head : this.periodic.values())
+            while (head.next != head) head.next.cancel();
+
+        this.periodic.clear();
+        this.due.clear();
+    }
+
+    private void insert(final Task task) {
+        final long delta = Math.min(task.deadline - this.now, Clock.SPAN - 1);
+        final long placement = this.now + delta;
+
+        int level = 0;
+        while (level < Clock.LEVELS - 1 && delta >= 1L << (Clock.BITS * (level + 1))) level++;
+
+        final int slot = (int) (placement >>> (Clock.BITS * level)) & Clock.MASK;
+        task.link(this.wheel[level][slot]);
+    }
+
+    @Override
+    public void run() {
+        this.now++;
+
+        // move tasks from higher levels down as their range begins
+        for (int level = 1; level < Clock.LEVELS; level++) {
+            if ((this.now & ((1L << (Clock.BITS * level)) - 1)) != 0) break;
+
+            final Task head = this.wheel[level][(int) (this.now >>> (Clock.BITS * level)) & Clock.MASK];
+            while (head.next != head) {
+                final Task task = head.next;
+                task.unlink();
+                this.insert(task);
+            }
+        }
+
+        final Task head = this.wheel[0][(int) this.now & Clock.MASK];
+        while (head.next != head) {
+            final Task task = head.next;
+            task.unlink();
+            if (task.deadline > this.now) {
+                this.insert(task);
+                continue;
+            }
+            this.execute(task);
+        }
+
+        for (final Task periodic : this.periodic.values())
+            for (Task task = periodic.next; task != periodic; task = task.next)
+                if (task.deadline <= this.now)
+                    this.due.add(task);
+
+        for (int i = 0; i < this.due.size(); i++) {
+            final Task task = this.due.get(i);
+            if (!task.isScheduled() || task.deadline > this.now) continue; // changed by an earlier task
+            task.deadline = this.now + task.period;
+            this.execute(task);
+        }
+        this.due.clear();
+    }
+
+    private void execute(final Task task) {
+        final long start = Profiler.start();
+        try {
+            task.callback.run();
+        } catch (final Throwable t) {
+            this.plugin.getLogger().log(Level.SEVERE, "Unhandled exception in clock task " + task.callback.getClass().getName() + "; " + t);
+            this.plugin.getLogger().log(CustomLevel.DEBUG, "Exception detail", t);
+        }
+        Profiler.record(task.world, task.callback.getClass(), start);
+    }
+
+
+
+    /** reusable schedule entry for a callback; one task can be scheduled at a time */
+    public static final class Task {
+
+        private static Task head() {
+            final Task head = new Task(null);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        private final Runnable callback;
+        private Task prev = null;
+        private Task next = null;
+        private long deadline = 0;
+        private long period = 0;
+        private World world = null;
+
+        public Task(final Runnable callback) {
+            this.callback = callback;
+        }
+
+        public boolean isScheduled() {
+            return this.prev != null;
+        }
+
+        /** remove from schedule if scheduled */
+        public void cancel() {
+            if (this.prev == null) return;
+            this.unlink();
+        }
+
+        private void link(final Task head) {
+            this.prev = head.prev;
+            this.next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            this.prev.next = this.next;
+            this.next.prev = this.prev;
+            this.prev = null;
+            this.next = null;
+        }
+
+    }
+
+}
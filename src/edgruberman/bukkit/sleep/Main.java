@@ -11,6 +11,7 @@ import edgruberman.bukkit.playeractivity.PlayerMoveBlockEvent;
 import edgruberman.bukkit.sleep.commands.Force;
 import edgruberman.bukkit.sleep.commands.Reload;
 import edgruberman.bukkit.sleep.commands.Status;
+import edgruberman.bukkit.sleep.commands.Timings;
 import edgruberman.bukkit.sleep.messaging.Courier.ConfigurationCourier;
 import edgruberman.bukkit.sleep.supplements.Away;
 import edgruberman.bukkit.sleep.supplements.Daybed;
@@ -28,8 +29,10 @@ import edgruberman.bukkit.sleep.supplements.rewards.Food;
 import edgruberman.bukkit.sleep.supplements.rewards.Health;
 import edgruberman.bukkit.sleep.supplements.rewards.Item;
 import edgruberman.bukkit.sleep.supplements.rewards.PotionEffect;
+import edgruberman.bukkit.sleep.util.ConfigurationCache;
 import edgruberman.bukkit.sleep.util.CustomPlugin;
 import edgruberman.bukkit.sleep.util.PluginDependency;
+import edgruberman.bukkit.sleep.util.Profiler;
 
 public final class Main extends CustomPlugin {
 
@@ -37,8 +40,12 @@ public final class Main extends CustomPlugin {
     public static final String LANGUAGE_FILE = "language.yml";
 
     public static ConfigurationCourier courier;
+    public static PermissionCache permissions;
+    public static Clock clock;
+    public static ActivityTracker activity;
 
     private boolean loaded = false;
+    private final ConfigurationCache configurationCache = new ConfigurationCache();
     private SupplementManager supplementManager = null;
     public Somnologist somnologist = null;
 
@@ -80,40 +87,67 @@ public final class Main extends CustomPlugin {
         this.reloadConfig();
         Main.courier = ConfigurationCourier.Factory.create(this).setBase(this.loadConfig(Main.LANGUAGE_FILE)).setFormatCode("format-code").setPath("common").build();
 
+        Main.permissions = new PermissionCache(this, this.getConfig().getLong("permission-refresh") * Main.TICKS_PER_SECOND);
+        Main.clock = new Clock(this);
+        Main.activity = new ActivityTracker(this);
+        Profiler.setEnabled(this.getConfig().getBoolean("timings"));
+
         if (Bukkit.getPluginManager().getPlugin("PlayerActivity") == null) PlayerMoveBlockEvent.MovementTracker.initialize(this);
 
-        Rewards.register(this, ConsoleCommand.class, "ConsoleCommand");
-        Rewards.register(this, Experience.class, "Experience");
-        Rewards.register(this, ExperienceOrb.class, "ExperienceOrb");
-        Rewards.register(this, Food.class, "Food");
-        Rewards.register(this, Health.class, "Health");
-        Rewards.register(this, Item.class, "Item");
-        Rewards.register(this, PotionEffect.class, "PotionEffect");
-        this.getSupplementManager().register(this, Rewards.class, "rewards");
-
-        this.getSupplementManager().register(this, Away.class, "away");
-        this.getSupplementManager().register(this, Daybed.class, "daybed");
-        this.getSupplementManager().register(this, Idle.class, "idle");
-        this.getSupplementManager().register(this, Insomnia.class, "insomnia");
-        this.getSupplementManager().register(this, Temporary.class, "temporary");
-        this.getSupplementManager().register(this, Underground.class, "underground");
-        this.getSupplementManager().register(this, SpamFilter.class, "spam-filter");
-        this.getSupplementManager().register(this, FastForward.class, "fast-forward");
+        Rewards.register(this, ConsoleCommand.FACTORY, "ConsoleCommand");
+        Rewards.register(this, Experience.FACTORY, "Experience");
+        Rewards.register(this, ExperienceOrb.FACTORY, "ExperienceOrb");
+        Rewards.register(this, Food.FACTORY, "Food");
+        Rewards.register(this, Health.FACTORY, "Health");
+        Rewards.register(this, Item.FACTORY, "Item");
+        Rewards.register(this, PotionEffect.FACTORY, "PotionEffect");
+        this.getSupplementManager().register(this, Rewards.class, "rewards", Rewards.FACTORY);
+
+        this.getSupplementManager().register(this, Away.class, "away", Away.FACTORY);
+        this.getSupplementManager().register(this, Daybed.class, "daybed", Daybed.FACTORY);
+        this.getSupplementManager().register(this, Idle.class, "idle", Idle.FACTORY);
+        this.getSupplementManager().register(this, Insomnia.class, "insomnia", Insomnia.FACTORY);
+        this.getSupplementManager().register(this, Temporary.class, "temporary", Temporary.FACTORY);
+        this.getSupplementManager().register(this, Underground.class, "underground", Underground.FACTORY);
+        this.getSupplementManager().register(this, SpamFilter.class, "spam-filter", SpamFilter.FACTORY);
+        this.getSupplementManager().register(this, FastForward.class, "fast-forward", FastForward.FACTORY);
 
         this.somnologist = new Somnologist(this, this.getConfig().getStringList("excluded"));
 
         this.getCommand("status").setExecutor(new Status(this.somnologist));
         this.getCommand("force").setExecutor(new Force(this.somnologist));
         this.getCommand("sleep.reload").setExecutor(new Reload(this));
+        this.getCommand("sleep.timings").setExecutor(new Timings());
     }
 
     @Override
     public void onDisable() {
         if (this.supplementManager != null) this.supplementManager.unload();
         if (this.somnologist != null) this.somnologist.unload();
+        if (Main.permissions != null) Main.permissions.unload();
+        if (Main.activity != null) Main.activity.unload();
+        if (Main.clock != null) Main.clock.unload();
         HandlerList.unregisterAll(this);
         Bukkit.getScheduler().cancelTasks(this);
         Main.courier = null;
+        Main.permissions = null;
+        Main.clock = null;
+        Main.activity = null;
+    }
+
+    /**
+     * apply configuration file changes without unloading; world sleep states
+     * and unchanged supplements remain loaded
+     */
+    public void reloadChanges() {
+        this.reloadConfig();
+        Main.courier = ConfigurationCourier.Factory.create(this).setBase(this.loadConfig(Main.LANGUAGE_FILE)).setFormatCode("format-code").setPath("common").build();
+
+        Main.permissions.unload();
+        Main.permissions = new PermissionCache(this, this.getConfig().getLong("permission-refresh") * Main.TICKS_PER_SECOND);
+        Profiler.setEnabled(this.getConfig().getBoolean("timings"));
+
+        this.somnologist.reload(this.getConfig().getStringList("excluded"));
     }
 
     public SupplementManager getSupplementManager() {
@@ -121,6 +155,11 @@ public final class Main extends CustomPlugin {
         return this.supplementManager;
     }
 
+    /** parsed world specific configuration files, retained across reloads until modified */
+    ConfigurationCache getConfigurationCache() {
+        return this.configurationCache;
+    }
+
 
 
     public static long parseTime(final String value, final TimeUnit output, final long defaultDuration, final TimeUnit defaultSource) {
@@ -0,0 +1,89 @@
+package edgruberman.bukkit.sleep;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * remembers permission results for frequently checked permissions; results
+ * are discarded when a player joins, quits, or changes worlds and on each
+ * periodic sweep
+ */
+public final class PermissionCache implements Listener, Runnable {
+
+    private final Plugin plugin;
+    private final Map<UUID, Map<String, Boolean>> results = new HashMap<UUID, Map<String, Boolean>>();
+    private final int taskId;
+
+    PermissionCache(final Plugin plugin, final long period) {
+        this.plugin = plugin;
+        this.taskId = ( period > 0 ? Bukkit.getScheduler().runTaskTimer(plugin, this, period, period).getTaskId() : -1 );
+        if (period > 0) this.plugin.getLogger().log(Level.CONFIG, "Permission results refreshed every {0} seconds", period / Main.TICKS_PER_SECOND);
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /** @return cached result of {@link Player#hasPermission(String)}, checking the player if not yet cached */
+    public boolean has(final Player player, final String permission) {
+        Map<String, Boolean> playerResults = this.results.get(player.getUniqueId());
+        if (playerResults == null) {
+            playerResults = new HashMap<String, Boolean>();
+            this.results.put(player.getUniqueId(), playerResults);
+        }
+
+        Boolean result = playerResults.get(permission);
+        if (result == null) {
+            result = player.hasPermission(permission);
+            playerResults.put(permission, result);
+        }
+
+        return result;
+    }
+
+    public void invalidate(final Player player) {
+        this.results.remove(player.getUniqueId());
+    }
+
+    public void clear() {
+        this.results.clear();
+    }
+
+    void unload() {
+        HandlerList.unregisterAll(this);
+        if (this.taskId != -1) Bukkit.getScheduler().cancelTask(this.taskId);
+        this.clear();
+    }
+
+    /** periodic sweep to pick up permission changes made while players remain in the same world */
+    @Override
+    public void run() {
+        this.clear();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST) // before sleep state adds player
+    public void onPlayerJoin(final PlayerJoinEvent join) {
+        this.invalidate(join.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST) // before sleep state adds player to new world
+    public void onPlayerChangedWorld(final PlayerChangedWorldEvent changed) {
+        this.invalidate(changed.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent quit) {
+        this.invalidate(quit.getPlayer());
+    }
+
+}
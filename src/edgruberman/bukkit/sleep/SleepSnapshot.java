@@ -0,0 +1,49 @@
+package edgruberman.bukkit.sleep;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * immutable copy of a world's sleep state at a point in time; safe to read
+ * from any thread (player references are not retained)
+ */
+public final class SleepSnapshot {
+
+    public final String world;
+    public final int sleeping;
+    public final int possible;
+    public final int needed;
+    public final boolean forcing;
+
+    /** when this snapshot was taken (milliseconds since epoch) */
+    public final long timestamp;
+
+    /** names of players not ignored and not in bed */
+    public final List<String> preventing;
+
+    /** server ticks until dawn as of the prediction; -1 when not predicted */
+    public final long dawn;
+
+    /** predicted time of dawn (milliseconds since epoch); 0 when not predicted */
+    public final long dawnEta;
+
+    SleepSnapshot(final String world, final int sleeping, final int possible, final int needed, final boolean forcing, final List<String> preventing, final long dawn, final long dawnEta) {
+        this.world = world;
+        this.sleeping = sleeping;
+        this.possible = possible;
+        this.needed = needed;
+        this.forcing = forcing;
+        this.timestamp = System.currentTimeMillis();
+        this.preventing = Collections.unmodifiableList(preventing);
+        this.dawn = dawn;
+        this.dawnEta = dawnEta;
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format("SleepSnapshot = world: \"{0}\", sleeping: {1}, possible: {2}, needed: {3}, forcing: {4}, preventing: {5}, timestamp: {6,number,#}, dawn: {7,number,#}, dawnEta: {8,number,#}"
+                , this.world, this.sleeping, this.possible, this.needed, this.forcing, this.preventing, this.timestamp, this.dawn, this.dawnEta);
+    }
+
+}
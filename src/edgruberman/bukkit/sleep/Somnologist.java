@@ -6,8 +6,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
@@ -16,6 +27,7 @@ import org.bukkit.World.Environment;
 import org.bukkit.configuration.Configuration;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
@@ -25,25 +37,53 @@ import org.bukkit.event.player.PlayerBedLeaveEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.plugin.Plugin;
 
+import edgruberman.bukkit.playeractivity.PlayerMoveBlockEvent;
+import edgruberman.bukkit.sleep.Supplement.AddHandler;
+import edgruberman.bukkit.sleep.Supplement.BedEnterHandler;
+import edgruberman.bukkit.sleep.Supplement.BedLeaveHandler;
+import edgruberman.bukkit.sleep.Supplement.BulkComplyHandler;
+import edgruberman.bukkit.sleep.Supplement.BulkIgnoredChangedHandler;
+import edgruberman.bukkit.sleep.Supplement.ComplyHandler;
+import edgruberman.bukkit.sleep.Supplement.EnterHandler;
+import edgruberman.bukkit.sleep.Supplement.IgnoredChangedHandler;
+import edgruberman.bukkit.sleep.Supplement.LeaveHandler;
+import edgruberman.bukkit.sleep.Supplement.MoveBlockHandler;
+import edgruberman.bukkit.sleep.Supplement.NotifyHandler;
+import edgruberman.bukkit.sleep.Supplement.RemoveHandler;
+import edgruberman.bukkit.sleep.Supplement.StatusHandler;
+import edgruberman.bukkit.sleep.Supplement.TeleportHandler;
+import edgruberman.bukkit.sleep.Supplement.WorldChangeHandler;
+import edgruberman.bukkit.sleep.events.SleepAdd;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnore;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnoredChanged;
+import edgruberman.bukkit.sleep.events.SleepComply;
+import edgruberman.bukkit.sleep.events.SleepEnter;
+import edgruberman.bukkit.sleep.events.SleepIgnoredChanged;
+import edgruberman.bukkit.sleep.events.SleepLeave;
+import edgruberman.bukkit.sleep.events.SleepNotify;
+import edgruberman.bukkit.sleep.events.SleepRemove;
+import edgruberman.bukkit.sleep.events.SleepStatus;
+import edgruberman.bukkit.sleep.util.ConfigurationCache;
 import edgruberman.bukkit.sleep.util.CustomPlugin;
+import edgruberman.bukkit.sleep.util.Profiler;
 
-/** sleep state management */
+/** sleep state management; routes world specific events to only the supplements of that world */
 public final class Somnologist implements Listener {
 
     private static final String WORLD_CONFIG_PATH = "Worlds/{0}/{1}"; // Relative to plugin data folder; 0 = World Name, 1 = File Name
 
-    private static ConfigurationSection loadWorldConfig(final Plugin plugin, final World world, final String fileName, final Configuration defaults) {
-        final File file = new File(plugin.getDataFolder(), MessageFormat.format(Somnologist.WORLD_CONFIG_PATH, world.getName(), fileName));
-        if (file.exists()) plugin.getLogger().log(Level.CONFIG, "[{0}] World specific configuration override found at {1}", new Object[] { world.getName(), file });
+    private static File worldConfigFile(final Plugin plugin, final World world, final String fileName) {
+        return new File(plugin.getDataFolder(), MessageFormat.format(Somnologist.WORLD_CONFIG_PATH, world.getName(), fileName));
+    }
 
-        final YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+    private static ConfigurationSection applyDefaults(final YamlConfiguration config, final Configuration defaults) {
         config.setDefaults(defaults);
         config.options().copyDefaults(true);
-
         return config;
     }
 
@@ -52,35 +92,193 @@ public final class Somnologist implements Listener {
     private final Main plugin;
     private final List<String> excluded = new ArrayList<String>();
     private final Map<World, State> states = new HashMap<World, State>();
+    private boolean lazy;
+    private long evict;
+    private final Map<World, Eviction> evictions = new HashMap<World, Eviction>();
+
+    /** copy of tracked states safe for iteration from other threads when reading snapshots */
+    private final List<State> published = new CopyOnWriteArrayList<State>();
+    private ExecutorService parser = null;
 
     Somnologist(final Main plugin, final List<String> excluded) {
         this.plugin = plugin;
+        this.configure(excluded);
+
+        final List<World> worlds = new ArrayList<World>();
+        for (final World world : Bukkit.getWorlds())
+            if ((!this.lazy || world.getPlayers().size() > 0) && this.isEligible(world, true))
+                worlds.add(world);
+
+        for (final WorldOverrides overrides : this.parse(worlds)) this.createState(overrides, null);
+
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    private void configure(final List<String> excluded) {
+        this.excluded.clear();
         if (excluded != null) this.excluded.addAll(excluded);
         if (this.excluded.size() > 0 ) this.plugin.getLogger().config("Excluded Worlds: " + excluded);
 
-        for (final World world : Bukkit.getWorlds()) this.loadState(world);
-        Bukkit.getPluginManager().registerEvents(this, plugin);
+        this.lazy = this.plugin.getConfig().getBoolean("lazy.enabled");
+        this.evict = this.plugin.getConfig().getLong("lazy.evict") * Main.TICKS_PER_SECOND;
+        if (this.lazy) this.plugin.getLogger().log(Level.CONFIG, "World sleep states created when first player arrives and unloaded after empty for {0} seconds", this.evict / Main.TICKS_PER_SECOND);
     }
 
-    /** create state based on configuration */
-    State loadState(final World world) {
+    /**
+     * apply configuration changes to existing states in place; tracked
+     * players, sleepers and forcing carry over without player events and
+     * only supplements with a changed configuration section are rebuilt
+     */
+    void reload(final List<String> excluded) {
+        this.configure(excluded);
+        if (!this.lazy) {
+            for (final Eviction eviction : this.evictions.values()) eviction.cancel();
+            this.evictions.clear();
+        }
+
+        for (final World world : new ArrayList<World>(this.states.keySet()))
+            if (!this.isEligible(world, false))
+                this.unloadState(world);
+
+        final List<World> worlds = new ArrayList<World>();
+        for (final World world : Bukkit.getWorlds())
+            if (this.states.containsKey(world) || ((!this.lazy || world.getPlayers().size() > 0) && this.isEligible(world, true)))
+                worlds.add(world);
+
+        for (final WorldOverrides overrides : this.parse(worlds)) {
+            final State state = this.states.get(overrides.world);
+            if (state == null) {
+                this.createState(overrides, null);
+                continue;
+            }
+
+            final ConfigurationSection previous = state.getConfig();
+            state.configure(Somnologist.applyDefaults(overrides.config, this.plugin.getConfig()), Somnologist.applyDefaults(overrides.language, Main.courier.getBase().getRoot()));
+            final int rebuilt = this.plugin.getSupplementManager().reloadSupplements(state, previous);
+            this.plugin.getLogger().log(Level.FINE, "[{0}] Reloaded sleep state configuration; Rebuilt {1} supplement sections", new Object[] { state.world.getName(), rebuilt });
+            this.deactivate(state);
+        }
+    }
+
+    private boolean isEligible(final World world, final boolean log) {
         if (world.getEnvironment() != Environment.NORMAL) {
-            this.plugin.getLogger().log(Level.CONFIG, "[{0}] World sleep state tracking excluded because environment is {1}"
+            if (log) this.plugin.getLogger().log(Level.CONFIG, "[{0}] World sleep state tracking excluded because environment is {1}"
                     , new Object[] { world.getName(), world.getEnvironment() });
-            return null;
+            return false;
         }
 
         if (this.excluded.contains(world.getName())) {
-            this.plugin.getLogger().log(Level.CONFIG, "[{0}] World sleep state tracking explicitly excluded", world.getName());
-            return null;
+            if (log) this.plugin.getLogger().log(Level.CONFIG, "[{0}] World sleep state tracking explicitly excluded", world.getName());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return state for arriving player's world, creating it first when lazily loading; null if world is not tracked
+     * (arriving player is not added and must be added by caller)
+     */
+    private State activate(final Player arriving) {
+        final World world = arriving.getWorld();
+        State state = this.states.get(world);
+        if (state == null && this.lazy && this.isEligible(world, false)) state = this.loadState(world, arriving);
+        if (state != null) this.cancelEviction(world);
+        return state;
+    }
+
+    /** unload state after delay when lazily loading and no players remain */
+    private void deactivate(final State state) {
+        if (!this.lazy || state.players.size() > 0 || this.evictions.containsKey(state.world)) return;
+        this.evictions.put(state.world, new Eviction(state.world));
+    }
+
+    private void cancelEviction(final World world) {
+        final Eviction eviction = this.evictions.remove(world);
+        if (eviction != null) eviction.cancel();
+    }
+
+    /** stop tracking sleep state for a world, unloading its supplements */
+    void unloadState(final World world) {
+        this.cancelEviction(world);
+        final State state = this.states.remove(world);
+        if (state == null) return;
+
+        this.published.remove(state);
+        Supplement.unload(state);
+        state.unload();
+        Main.clock.cancel(world);
+        Supplement.releaseLeaked(state, true);
+    }
+
+    /**
+     * create state based on configuration
+     * @param arriving player already in world that caller will add; null to add all players in world
+     */
+    State loadState(final World world, final Player arriving) {
+        if (!this.isEligible(world, true)) return null;
+        return this.createState(new WorldOverrides(world).call(), arriving);
+    }
+
+    /**
+     * parse world specific configuration overrides concurrently, or on this thread when
+     * every file is already cached; results are returned in world order for use on this thread
+     */
+    private List<WorldOverrides> parse(final List<World> worlds) {
+        final List<WorldOverrides> parsed = new ArrayList<WorldOverrides>();
+        final List<WorldOverrides> pending = new ArrayList<WorldOverrides>();
+        for (final World world : worlds) pending.add(new WorldOverrides(world));
+
+        boolean cached = true;
+        for (final WorldOverrides overrides : pending) cached &= overrides.isCached();
+        if (cached || worlds.size() <= 1) {
+            for (final WorldOverrides overrides : pending) parsed.add(overrides.call());
+            return parsed;
         }
 
-        final ConfigurationSection config = Somnologist.loadWorldConfig(this.plugin, world, CustomPlugin.CONFIGURATION_FILE, this.plugin.getConfig());
-        final ConfigurationSection language = Somnologist.loadWorldConfig(this.plugin, world, Main.LANGUAGE_FILE, Main.courier.getBase().getRoot());
+        final List<Future<WorldOverrides>> parsing = new ArrayList<Future<WorldOverrides>>();
+        for (final WorldOverrides overrides : pending) parsing.add(this.parser().submit(overrides));
+
+        for (int i = 0; i < worlds.size(); i++) {
+            try {
+                parsed.add(parsing.get(i).get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                parsed.add(new WorldOverrides(worlds.get(i)).call());
+            } catch (final ExecutionException e) {
+                this.plugin.getLogger().log(Level.WARNING, "[{0}] Retrying configuration load; {1}", new Object[] { worlds.get(i).getName(), e.getCause() });
+                parsed.add(new WorldOverrides(worlds.get(i)).call());
+            }
+        }
+
+        return parsed;
+    }
+
+    /** @return daemon threads for parsing configuration, created on first use; idle threads end after a minute */
+    private ExecutorService parser() {
+        if (this.parser != null) return this.parser;
+
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ThreadPoolExecutor parser = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ParserThreads());
+        parser.allowCoreThreadTimeOut(true);
+        this.parser = parser;
+        return parser;
+    }
+
+    /** players are added after supplements load so supplements observe each add */
+    private State createState(final WorldOverrides overrides, final Player arriving) {
+        final World world = overrides.world;
+        final ConfigurationSection config = Somnologist.applyDefaults(overrides.config, this.plugin.getConfig());
+        final ConfigurationSection language = Somnologist.applyDefaults(overrides.language, Main.courier.getBase().getRoot());
         final State state = new State(this.plugin, world, config, language);
+        Supplement.releaseLeaked(state, false);
         this.plugin.getSupplementManager().loadSupplements(state);
+        for (final Player existing : world.getPlayers())
+            if (!existing.equals(arriving))
+                state.add(existing);
 
         this.states.put(world, state);
+        this.published.add(state);
         return state;
     }
 
@@ -92,48 +290,70 @@ public final class Somnologist implements Listener {
         return this.states.get(world);
     }
 
+    /** @return latest sleep state snapshot for each tracked world, indexed by world name; safe to call from any thread */
+    public Map<String, SleepSnapshot> getSnapshots() {
+        final Map<String, SleepSnapshot> snapshots = new LinkedHashMap<String, SleepSnapshot>();
+        for (final State state : this.published) {
+            final SleepSnapshot snapshot = state.getSnapshot();
+            snapshots.put(snapshot.world, snapshot);
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
     /** disable sleep state tracking for all worlds */
     void unload() {
         HandlerList.unregisterAll(this);
+        if (this.parser != null) this.parser.shutdown();
+        this.parser = null;
+        for (final Eviction eviction : this.evictions.values()) eviction.cancel();
+        this.evictions.clear();
+        this.published.clear();
         for (final State state : this.states.values()) state.unload(); this.states.clear();
         this.excluded.clear();
     }
 
     @EventHandler
     public void onWorldLoad(final WorldLoadEvent event) {
-        this.loadState(event.getWorld());
+        if (this.lazy && event.getWorld().getPlayers().size() == 0) return;
+        this.loadState(event.getWorld(), null);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true) // unload state last/after supplements
     public void onWorldUnload(final WorldUnloadEvent event) {
-        final State state = this.states.get(event.getWorld());
-        if (state == null) return;
-
-        state.unload();
-        this.states.remove(state);
+        this.unloadState(event.getWorld());
     }
 
     @EventHandler
     public void onPlayerJoin(final PlayerJoinEvent event) {
         // Ignore for untracked world sleep states
-        final State state = this.states.get(event.getPlayer().getWorld());
+        final State state = this.activate(event.getPlayer());
         if (state == null) return;
 
         state.add(event.getPlayer());
 
         // player is not considered in the world yet, so won't get world notification
         if (!event.getPlayer().isSleepingIgnored() && state.sleeping.size() >= 1)
-            state.courier.send(event.getPlayer(), "add", event.getPlayer().getDisplayName(), state.needed(), state.sleeping.size(), state.possible().size());
+            state.getCourier().send(event.getPlayer(), "add", event.getPlayer().getDisplayName(), state.needed(), state.sleeping.size(), state.possibleCount());
     }
 
     @EventHandler
     public void onPlayerChangedWorld(final PlayerChangedWorldEvent event) {
         // Notify tracked sleep states of player moving between them
         final State from = this.states.get(event.getFrom());
-        if (from != null) from.remove(event.getPlayer());
+        if (from != null) {
+            from.remove(event.getPlayer());
+            this.deactivate(from);
+        }
+
+        final State to = this.activate(event.getPlayer());
+        if (to == null) return;
 
-        final State to = this.states.get(event.getPlayer().getWorld());
-        if (to != null) to.add(event.getPlayer());
+        for (final WorldChangeHandler handler : to.getHandlers(WorldChangeHandler.class)) {
+            final long start = Profiler.start();
+            handler.onPlayerChangedWorld(event);
+            Profiler.record(to.world, handler.getClass(), start);
+        }
+        to.add(event.getPlayer());
     }
 
     @EventHandler
@@ -143,6 +363,7 @@ public final class Somnologist implements Listener {
         if (state == null) return;
 
         state.remove(event.getPlayer());
+        this.deactivate(state);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -151,6 +372,11 @@ public final class Somnologist implements Listener {
         final State state = this.states.get(event.getPlayer().getWorld());
         if (state == null) return;
 
+        for (final BedEnterHandler handler : state.getHandlers(BedEnterHandler.class)) {
+            final long start = Profiler.start();
+            handler.onPlayerBedEnter(event);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
         state.enter(event.getPlayer());
     }
 
@@ -160,7 +386,237 @@ public final class Somnologist implements Listener {
         final State state = this.states.get(event.getPlayer().getWorld());
         if (state == null) return;
 
+        for (final BedLeaveHandler handler : state.getHandlers(BedLeaveHandler.class)) {
+            final long start = Profiler.start();
+            handler.onPlayerBedLeave(event);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
         state.leave(event.getPlayer(), event.getBed());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerMoveBlock(final PlayerMoveBlockEvent move) {
+        final State state = this.states.get(move.getTo().getWorld());
+        if (state == null) return;
+
+        for (final MoveBlockHandler handler : state.getHandlers(MoveBlockHandler.class)) {
+            final long start = Profiler.start();
+            handler.onPlayerMoveBlock(move);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(final PlayerTeleportEvent teleport) {
+        // moves between worlds are handled as world changes
+        if (!teleport.getFrom().getWorld().equals(teleport.getTo().getWorld())) return;
+        final State state = this.states.get(teleport.getTo().getWorld());
+        if (state == null) return;
+
+        for (final TeleportHandler handler : state.getHandlers(TeleportHandler.class)) {
+            final long start = Profiler.start();
+            handler.onPlayerTeleport(teleport);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onSleepNotify(final SleepNotify notify) {
+        final State state = this.states.get(notify.getWorld());
+        if (state == null) return;
+
+        // ordered pipeline; a cancelled or finished notification skips remaining stages
+        for (final NotifyHandler handler : state.getHandlers(NotifyHandler.class)) {
+            if (notify.isCancelled() || notify.isFinished()) return;
+            final long start = Profiler.start();
+            handler.onSleepNotify(notify);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onSleepStatus(final SleepStatus status) {
+        final State state = this.states.get(status.getWorld());
+        if (state == null) return;
+
+        for (final StatusHandler handler : state.getHandlers(StatusHandler.class)) {
+            if (status.isCancelled()) return;
+            final long start = Profiler.start();
+            handler.onSleepStatus(status);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onSleepComply(final SleepComply comply) {
+        final State state = this.states.get(comply.getPlayer().getWorld());
+        if (state == null) return;
+
+        for (final ComplyHandler handler : state.getHandlers(ComplyHandler.class)) {
+            if (comply.isCancelled()) return;
+            final long start = Profiler.start();
+            handler.onSleepComply(comply);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onSleepBulkIgnore(final SleepBulkIgnore bulk) {
+        if (bulk.isIgnore()) return;
+
+        final State state = this.states.get(bulk.getWorld());
+        if (state == null) return;
+
+        for (final BulkComplyHandler handler : state.getHandlers(BulkComplyHandler.class)) {
+            if (bulk.isCancelled()) return;
+            final long start = Profiler.start();
+            handler.onSleepBulkComply(bulk);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler
+    public void onSleepIgnoredChanged(final SleepIgnoredChanged changed) {
+        final State state = this.states.get(changed.getPlayer().getWorld());
+        if (state == null) return;
+
+        for (final IgnoredChangedHandler handler : state.getHandlers(IgnoredChangedHandler.class)) {
+            final long start = Profiler.start();
+            handler.onSleepIgnoredChanged(changed);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler
+    public void onSleepBulkIgnoredChanged(final SleepBulkIgnoredChanged changed) {
+        final State state = this.states.get(changed.getWorld());
+        if (state == null) return;
+
+        for (final BulkIgnoredChangedHandler handler : state.getHandlers(BulkIgnoredChangedHandler.class)) {
+            final long start = Profiler.start();
+            handler.onSleepBulkIgnoredChanged(changed);
+            Profiler.record(state.world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler
+    public void onSleepAdd(final SleepAdd add) {
+        for (final AddHandler handler : add.getState().getHandlers(AddHandler.class)) {
+            final long start = Profiler.start();
+            handler.onSleepAdd(add);
+            Profiler.record(add.getState().world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler
+    public void onSleepRemove(final SleepRemove remove) {
+        for (final RemoveHandler handler : remove.getState().getHandlers(RemoveHandler.class)) {
+            final long start = Profiler.start();
+            handler.onSleepRemove(remove);
+            Profiler.record(remove.getState().world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler
+    public void onSleepEnter(final SleepEnter enter) {
+        for (final EnterHandler handler : enter.getState().getHandlers(EnterHandler.class)) {
+            final long start = Profiler.start();
+            handler.onSleepEnter(enter);
+            Profiler.record(enter.getState().world, handler.getClass(), start);
+        }
+    }
+
+    @EventHandler
+    public void onSleepLeave(final SleepLeave leave) {
+        for (final LeaveHandler handler : leave.getState().getHandlers(LeaveHandler.class)) {
+            final long start = Profiler.start();
+            handler.onSleepLeave(leave);
+            Profiler.record(leave.getState().world, handler.getClass(), start);
+        }
+    }
+
+
+
+    /** unloads an empty world's state after the configured delay */
+    private final class Eviction implements Runnable {
+
+        private final World world;
+        private final Clock.Task task = new Clock.Task(this);
+
+        private Eviction(final World world) {
+            this.world = world;
+            Main.clock.schedule(this.task, Somnologist.this.evict);
+        }
+
+        @Override
+        public void run() {
+            Somnologist.this.evictions.remove(this.world);
+
+            final State state = Somnologist.this.states.get(this.world);
+            if (state == null || state.players.size() > 0) return;
+
+            Somnologist.this.plugin.getLogger().log(Level.FINE, "[{0}] Unloading sleep state for empty world", this.world.getName());
+            Somnologist.this.unloadState(this.world);
+        }
+
+        private void cancel() {
+            this.task.cancel();
+        }
+
+    }
+
+
+
+    /** world specific configuration files parsed off the main thread */
+    private final class WorldOverrides implements Callable<WorldOverrides> {
+
+        private final World world;
+        private final File configFile;
+        private final File languageFile;
+        private YamlConfiguration config;
+        private YamlConfiguration language;
+
+        private WorldOverrides(final World world) {
+            this.world = world;
+            this.configFile = Somnologist.worldConfigFile(Somnologist.this.plugin, world, CustomPlugin.CONFIGURATION_FILE);
+            this.languageFile = Somnologist.worldConfigFile(Somnologist.this.plugin, world, Main.LANGUAGE_FILE);
+        }
+
+        /** @return true if both override files can be loaded without parsing */
+        private boolean isCached() {
+            final ConfigurationCache cache = Somnologist.this.plugin.getConfigurationCache();
+            return cache.isCurrent(this.configFile) && cache.isCurrent(this.languageFile);
+        }
+
+        @Override
+        public WorldOverrides call() {
+            this.config = this.load(this.configFile);
+            this.language = this.load(this.languageFile);
+            return this;
+        }
+
+        private YamlConfiguration load(final File file) {
+            final YamlConfiguration loaded = Somnologist.this.plugin.getConfigurationCache().load(file);
+            if (loaded.getKeys(false).size() > 0) Somnologist.this.plugin.getLogger().log(Level.CONFIG, "[{0}] World specific configuration override found at {1}", new Object[] { this.world.getName(), file });
+            return loaded;
+        }
+
+    }
+
+
+
+    /** daemon threads so parsing never keeps the server running */
+    private static final class ParserThreads implements ThreadFactory {
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "Sleep configuration parser " + this.created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
 }
@@ -1,9 +1,19 @@
 package edgruberman.bukkit.sleep;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
@@ -17,6 +27,8 @@ import org.bukkit.event.Event;
 import org.bukkit.plugin.Plugin;
 
 import edgruberman.bukkit.sleep.events.SleepAdd;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnore;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnoredChanged;
 import edgruberman.bukkit.sleep.events.SleepComply;
 import edgruberman.bukkit.sleep.events.SleepEnter;
 import edgruberman.bukkit.sleep.events.SleepIgnore;
@@ -25,6 +37,7 @@ import edgruberman.bukkit.sleep.events.SleepLeave;
 import edgruberman.bukkit.sleep.events.SleepNotify;
 import edgruberman.bukkit.sleep.events.SleepRemove;
 import edgruberman.bukkit.sleep.messaging.Courier.ConfigurationCourier;
+import edgruberman.bukkit.sleep.util.Profiler;
 
 /** sleep state for a specific world */
 public final class State {
@@ -34,105 +47,267 @@ public final class State {
 
     public final Plugin plugin;
     public final World world;
-    public final ConfigurationCourier courier;
-    public final ConfigurationSection config;
-    public final int forceCount;
-    public final int forcePercent;
+    private ConfigurationCourier courier;
+    private ConfigurationSection config;
+    private int forceCount;
+    private int forcePercent;
+    private boolean verifyCounts;
+    private long coalesce;
+
+    /** supplement configuration sections in the order their notification stages run */
+    private List<String> pipeline = Collections.emptyList();
 
     // need to track players manually as processing will sometimes occur mid-event before player is adjusted
-    public final List<UUID> sleeping = new ArrayList<UUID>();
-    public final List<Player> players = new ArrayList<Player>();
+    private final Set<UUID> sleepingIndex = new LinkedHashSet<UUID>();
+    private final Map<UUID, Player> playerIndex = new LinkedHashMap<UUID, Player>();
+
+    /** read-only view of players in bed, in order of bed entry */
+    public final List<UUID> sleeping = new OrderedView<UUID>(this.sleepingIndex);
+
+    /** read-only set view of players in bed, in order of bed entry */
+    public final Set<UUID> sleepers = Collections.unmodifiableSet(this.sleepingIndex);
+
+    /** read-only view of players in world, in order of arrival */
+    public final List<Player> players = new OrderedView<Player>(this.playerIndex.values()) {
+        @Override
+        public boolean contains(final Object o) {
+            return o instanceof Player && State.this.playerIndex.containsKey(((Player) o).getUniqueId());
+        }
+    };
+
+    /** players tracked in this world that are ignoring sleep (maintained on each transition to avoid recounting) */
+    private int ignored = 0;
 
     private boolean forcing = false;
 
+    /** server ticks until dawn when last predicted by a supplement advancing time; -1 when not predicted */
+    private long dawn = -1;
+
+    /** predicted time of dawn (milliseconds since epoch); 0 when not predicted */
+    private long dawnEta = 0;
+
+    /** latest published copy of this state for readers on other threads */
+    private volatile SleepSnapshot snapshot;
+
+    private final CoalescedNotify pending = new CoalescedNotify();
+
+    /** rebuilds the snapshot once per tick regardless of how many changes occurred */
+    private final Clock.Task publication = new Clock.Task(new Publication());
+
+    /** supplements attached to this world indexed by the handler interfaces they implement */
+    private final Map<Class<?>, List<Object>> handlers = new HashMap<Class<?>, List<Object>>();
+
     State(final Plugin plugin, final World world, final ConfigurationSection config, final ConfigurationSection language) {
         this.plugin = plugin;
         this.world = world;
-        this.courier = ConfigurationCourier.Factory.create(plugin).setBase(language).setFormatCode("format-code").build();
+        this.configure(config, language);
+        this.snapshot();
+    }
+
+    /** apply configuration; tracked players, sleepers and forcing are unaffected */
+    void configure(final ConfigurationSection config, final ConfigurationSection language) {
+        this.courier = ConfigurationCourier.Factory.create(this.plugin).setBase(language).setFormatCode("format-code").build();
         this.config = config;
 
         this.forceCount = ( config.getBoolean("force.enabled") ? config.getInt("force.count") : -1 );
         this.forcePercent = ( config.getBoolean("force.enabled") ? config.getInt("force.percent") : -1 );
         if (this.forceCount > 0 || this.forcePercent > 0) this.plugin.getLogger().log(Level.CONFIG, "[{0}] Force sleep minimum count: {1}; minimum percent: {2}"
-                , new Object[] { world.getName(),  this.forceCount, this.forcePercent });
+                , new Object[] { this.world.getName(),  this.forceCount, this.forcePercent });
+
+        this.verifyCounts = config.getBoolean("verify-counts");
+        if (this.verifyCounts) this.plugin.getLogger().log(Level.CONFIG, "[{0}] Verifying tracked counts after each change", this.world.getName());
+
+        this.coalesce = config.getLong("notify-coalesce");
+        if (this.coalesce > 0) this.plugin.getLogger().log(Level.CONFIG, "[{0}] Notifications combined within {1} ticks", new Object[] { this.world.getName(), this.coalesce });
+
+        this.pipeline = config.getStringList("notify-pipeline");
+        if (this.pipeline.size() > 0) this.plugin.getLogger().log(Level.CONFIG, "[{0}] Notification pipeline: {1}", new Object[] { this.world.getName(), this.pipeline });
+        this.orderPipeline();
+
+        // counts needed and notification window could have changed
+        this.pending.reschedule();
+        this.publish();
+    }
+
+    public ConfigurationCourier getCourier() {
+        return this.courier;
+    }
 
-        for (final Player existing : world.getPlayers()) this.add(existing);
+    public ConfigurationSection getConfig() {
+        return this.config;
+    }
+
+    /** @return minimum sleepers required to force sleep; -1 when disabled */
+    public int getForceCount() {
+        return this.forceCount;
+    }
+
+    /** @return minimum percent of possible sleepers required to force sleep; -1 when disabled */
+    public int getForcePercent() {
+        return this.forcePercent;
+    }
+
+    public boolean isVerifyingCounts() {
+        return this.verifyCounts;
+    }
+
+    /** @return ticks notifications are combined within; 0 or less when delivered immediately */
+    public long getCoalesce() {
+        return this.coalesce;
     }
 
     void unload() {
-        for (final Player player : this.world.getPlayers()) this.remove(player); this.players.clear();
-        this.sleeping.clear();
+        this.pending.cancel();
+        for (final Player player : this.world.getPlayers()) this.remove(player); this.playerIndex.clear();
+        this.sleepingIndex.clear();
+        this.ignored = 0;
+        this.snapshot();
     }
 
-    /** player joined world */
-    void add(final Player joiner) {
-        this.plugin.getLogger().log(Level.FINEST, "[{0}] add: {1} (Ignored: {2})"
-                , new Object[] { this.world.getName(), joiner.getName(), joiner.isSleepingIgnored() });
-        this.players.add(joiner);
+    void attach(final Supplement supplement) {
+        for (final Class<?> type : Supplement.HANDLERS) {
+            if (!type.isInstance(supplement)) continue;
 
-        if (!joiner.hasPermission("sleep.consider")) this.ignore(joiner, true, Reason.PERMISSION);
-        if (this.forcing) this.ignore(joiner, true, Reason.FORCE);
+            List<Object> attached = this.handlers.get(type);
+            if (attached == null) {
+                attached = new CopyOnWriteArrayList<Object>();
+                this.handlers.put(type, attached);
+            }
+            attached.add(supplement);
+        }
 
-        final SleepAdd event = new SleepAdd(joiner, this);
-        Bukkit.getPluginManager().callEvent(event);
+        if (supplement instanceof Supplement.NotifyHandler) this.orderPipeline();
+    }
+
+    /** arrange notification stages by configured section order; unlisted stages follow in load order */
+    private void orderPipeline() {
+        final List<Object> stages = this.handlers.get(Supplement.NotifyHandler.class);
+        if (stages == null) return;
 
-        if (!joiner.isSleepingIgnored() && this.sleeping.size() >= 1) this.notify(Reason.ADD, joiner, this.needed());
+        final List<Object> ordered = new ArrayList<Object>(stages);
+        Collections.sort(ordered, new Comparator<Object>() { // stable, preserving load order within same rank
+            @Override
+            public int compare(final Object a, final Object b) {
+                return State.this.rank((Supplement) a) - State.this.rank((Supplement) b);
+            }
+        });
+        this.handlers.put(Supplement.NotifyHandler.class, new CopyOnWriteArrayList<Object>(ordered));
     }
 
-    /** player entered bed */
-    void enter(final Player enterer) {
-        this.plugin.getLogger().log(Level.FINEST, "[{0}] enter: {1} (Ignored: {2})"
-                , new Object[] { this.world.getName(), enterer.getName(), enterer.isSleepingIgnored() });
-        this.sleeping.add(enterer.getUniqueId());
+    private int rank(final Supplement stage) {
+        final int index = this.pipeline.indexOf(stage.section);
+        return ( index != -1 ? index : this.pipeline.size() );
+    }
 
-        final SleepEnter event = new SleepEnter(enterer, this);
-        Bukkit.getPluginManager().callEvent(event);
+    void detach(final Supplement supplement) {
+        for (final List<Object> attached : this.handlers.values()) attached.remove(supplement);
+    }
+
+    /** @return supplements attached to this world that implement the handler interface, in load order */
+    @SuppressWarnings("unchecked")
+    <T> List<T> getHandlers(final Class<T> type) {
+        final List<Object> attached = this.handlers.get(type);
+        if (attached == null) return Collections.emptyList();
+        return (List<T>) attached;
+    }
 
-        if (enterer.hasPermission("sleep.enter.force")) {
-            this.force(enterer);
-            return;
+    /** player joined world */
+    void add(final Player joiner) {
+        final long start = Profiler.start();
+        try {
+            this.plugin.getLogger().log(Level.FINEST, "[{0}] add: {1} (Ignored: {2})"
+                    , new Object[] { this.world.getName(), joiner.getName(), joiner.isSleepingIgnored() });
+            this.playerIndex.put(joiner.getUniqueId(), joiner);
+            if (joiner.isSleepingIgnored()) this.ignored++;
+
+            if (!Main.permissions.has(joiner, "sleep.consider")) this.ignore(joiner, true, Reason.PERMISSION);
+            if (this.forcing) this.ignore(joiner, true, Reason.FORCE);
+
+            final SleepAdd event = new SleepAdd(joiner, this);
+            Bukkit.getPluginManager().callEvent(event);
+
+            if (!joiner.isSleepingIgnored() && this.sleeping.size() >= 1) this.notify(Reason.ADD, joiner, this.needed());
+            this.changed("add");
+        } finally {
+            Profiler.record(this.world, "State.add", start);
         }
+    }
 
-        if (!enterer.isSleepingIgnored()) this.notify(Reason.ENTER, enterer, this.needed());
+    /** player entered bed */
+    void enter(final Player enterer) {
+        final long start = Profiler.start();
+        try {
+            this.plugin.getLogger().log(Level.FINEST, "[{0}] enter: {1} (Ignored: {2})"
+                    , new Object[] { this.world.getName(), enterer.getName(), enterer.isSleepingIgnored() });
+            this.sleepingIndex.add(enterer.getUniqueId());
+
+            final SleepEnter event = new SleepEnter(enterer, this);
+            Bukkit.getPluginManager().callEvent(event);
+
+            if (Main.permissions.has(enterer, "sleep.enter.force")) {
+                this.force(enterer);
+                return;
+            }
+
+            if (!enterer.isSleepingIgnored()) this.notify(Reason.ENTER, enterer, this.needed());
+            this.changed("enter");
+        } finally {
+            Profiler.record(this.world, "State.enter", start);
+        }
     }
 
     /** player left bed */
     void leave(final Player leaver, final Block bed) {
-        this.plugin.getLogger().log(Level.FINEST, "[{0}] leave: {1} (Ignored: {2})"
-                , new Object[] { this.world.getName(), leaver.getName(), leaver.isSleepingIgnored() });
-        this.sleeping.remove(leaver.getUniqueId());
+        final long start = Profiler.start();
+        try {
+            this.plugin.getLogger().log(Level.FINEST, "[{0}] leave: {1} (Ignored: {2})"
+                    , new Object[] { this.world.getName(), leaver.getName(), leaver.isSleepingIgnored() });
+            this.sleepingIndex.remove(leaver.getUniqueId());
+
+            // player could leave bed after disconnect while in bed and reconnect in day time TODO really?
+            if (!this.isTracked(leaver)) {
+                this.publish();
+                return;
+            }
 
-        // player could leave bed after disconnect while in bed and reconnect in day time TODO really?
-        if (!this.players.contains(leaver)) return;
+            final SleepLeave event = new SleepLeave(leaver, this);
+            Bukkit.getPluginManager().callEvent(event);
 
-        final SleepLeave event = new SleepLeave(leaver, this);
-        Bukkit.getPluginManager().callEvent(event);
+            // reset forced sleep after last player leaves bed
+            if (this.forcing && this.sleeping.size() == 0) {
+                this.forcing = false;
+                this.ignore(this.world.getPlayers(), false, Reason.RESET);
+            }
 
-        // reset forced sleep after last player leaves bed
-        if (this.forcing && this.sleeping.size() == 0) {
-            this.forcing = false;
-            for (final Player player : this.world.getPlayers())
-                this.ignore(player, false, Reason.RESET);
-        }
+            // notify for manual bed leave
+            if (!leaver.isSleepingIgnored() && this.world.getTime() != State.SLEEP_SUCCESS_TICKS && this.world.getTime() != State.SLEEP_FAILED_TICKS)
+                this.notify(Reason.LEAVE, leaver, this.needed());
 
-        // notify for manual bed leave
-        if (!leaver.isSleepingIgnored() && this.world.getTime() != State.SLEEP_SUCCESS_TICKS && this.world.getTime() != State.SLEEP_FAILED_TICKS)
-            this.notify(Reason.LEAVE, leaver, this.needed());
+            this.changed("leave");
+        } finally {
+            Profiler.record(this.world, "State.leave", start);
+        }
     }
 
     /** player left world */
     void remove(final Player remover) {
-        this.plugin.getLogger().log(Level.FINEST, "[{0}] remove: {1} (Current: [{3}]; Ignored: {2})"
-                , new Object[] { this.world.getName(), remover.getName(), remover.isSleepingIgnored(), remover.getWorld().getName() });
-        this.players.remove(remover);
-        final boolean wasAsleep = this.sleeping.remove(remover.getUniqueId());
-
-        final SleepRemove event = new SleepRemove(remover, this);
-        Bukkit.getPluginManager().callEvent(event);
-
-        // TODO why not use .ignore(false)?
-        if (!remover.isSleepingIgnored() && (wasAsleep || this.sleeping.size() >= 1)) this.notify(Reason.REMOVE, remover, this.needed());
-        remover.setSleepingIgnored(false);
+        final long start = Profiler.start();
+        try {
+            this.plugin.getLogger().log(Level.FINEST, "[{0}] remove: {1} (Current: [{3}]; Ignored: {2})"
+                    , new Object[] { this.world.getName(), remover.getName(), remover.isSleepingIgnored(), remover.getWorld().getName() });
+            if (this.playerIndex.remove(remover.getUniqueId()) != null && remover.isSleepingIgnored()) this.ignored--;
+            final boolean wasAsleep = this.sleepingIndex.remove(remover.getUniqueId());
+
+            final SleepRemove event = new SleepRemove(remover, this);
+            Bukkit.getPluginManager().callEvent(event);
+
+            // TODO why not use .ignore(false)?
+            if (!remover.isSleepingIgnored() && (wasAsleep || this.sleeping.size() >= 1)) this.notify(Reason.REMOVE, remover, this.needed());
+            remover.setSleepingIgnored(false);
+            this.changed("remove");
+        } finally {
+            Profiler.record(this.world, "State.remove", start);
+        }
     }
 
     /**
@@ -140,104 +315,273 @@ public final class State {
      * @param forcer who is forcing sleep; null for config
      */
     public void force(final CommandSender forcer) {
-        // indicate forced sleep for this world to ensure activity does not negate ignore status
-        this.forcing = true;
-
-        // set sleeping ignored for all players
-        for (final Player player : this.world.getPlayers())
-            this.ignore(player, true, Reason.FORCE);
-
-        String name = this.plugin.getName();
-        if (forcer != null) {
-            if (forcer instanceof Player) {
-                final Player player = (Player) forcer;
-                this.courier.format("player", player.getName(), player.getDisplayName());
-            } else {
-                name = forcer.getName();
+        final long start = Profiler.start();
+        try {
+            // indicate forced sleep for this world to ensure activity does not negate ignore status
+            this.forcing = true;
+
+            // set sleeping ignored for all players
+            this.ignore(this.world.getPlayers(), true, Reason.FORCE);
+
+            String name = this.plugin.getName();
+            if (forcer != null) {
+                if (forcer instanceof Player) {
+                    final Player player = (Player) forcer;
+                    this.courier.format("player", player.getName(), player.getDisplayName());
+                } else {
+                    name = forcer.getName();
+                }
             }
+            this.courier.announce(this.world, Reason.FORCE.getKey(), name);
+            this.publish();
+        } finally {
+            Profiler.record(this.world, "State.force", start);
         }
-        this.courier.announce(this.world, Reason.FORCE.getKey(), name);
     }
 
     /** set whether or not a player ignores sleep status checks */
     public void ignore(final Player player, final boolean ignore, final Reason reason) {
-        if (player.isSleepingIgnored() == ignore) return; // don't modify if already set as expected
+        final long start = Profiler.start();
+        try {
+            if (player.isSleepingIgnored() == ignore) return; // don't modify if already set as expected
 
-        this.plugin.getLogger().log(Level.FINEST, "[{0}] Setting {1} (Ignored: {2}) to {3,choice,0#not |1#}ignore sleep ({4})"
-                , new Object[] { this.world.getName(), player.getName(), player.isSleepingIgnored(), ignore?1:0, reason.getKey() });
+            this.plugin.getLogger().log(Level.FINEST, "[{0}] Setting {1} (Ignored: {2}) to {3,choice,0#not |1#}ignore sleep ({4})"
+                    , new Object[] { this.world.getName(), player.getName(), player.isSleepingIgnored(), ignore?1:0, reason.getKey() });
 
-        if (!ignore && !player.hasPermission("sleep.consider")) {
-            this.plugin.getLogger().log(Level.FINEST, "[{0}] Cancelling {1} changing to not ignore sleep (permission)"
-                    , new Object[] { this.world.getName(), player.getName()});
-            return;
+            if (!ignore && !Main.permissions.has(player, "sleep.consider")) {
+                this.plugin.getLogger().log(Level.FINEST, "[{0}] Cancelling {1} changing to not ignore sleep (permission)"
+                        , new Object[] { this.world.getName(), player.getName()});
+                return;
+            }
+
+            if (!ignore && this.forcing) {
+                this.plugin.getLogger().log(Level.FINEST, "[{0}] Cancelling {1} changing to not ignore sleep (forcing)"
+                        , new Object[] { this.world.getName(), player.getName()});
+                return;
+            }
+
+            // allow overrides to cancel change
+            final Event event = ( ignore ? new SleepIgnore(player, reason) : new SleepComply(player, reason) );
+            Bukkit.getPluginManager().callEvent(event);
+            if (((Cancellable) event).isCancelled()) return;
+
+            final int before = this.needed();
+            this.setIgnored(player, ignore);
+            final int after = this.needed();
+
+            // alert to change
+            Bukkit.getPluginManager().callEvent(new SleepIgnoredChanged(player, reason));
+
+            // notify when at least one player in bed and the needed quantity changes
+            if ((this.sleeping.size() >= 1) && (before != after))
+                this.notify(reason, player, after);
+
+            this.changed("ignore");
+        } finally {
+            Profiler.record(this.world, "State.ignore", start);
         }
+    }
+
+    /**
+     * set whether or not a group of players ignores sleep status checks,
+     * raising a single {@link SleepBulkIgnore} before and a single
+     * {@link SleepBulkIgnoredChanged} after instead of events per player
+     */
+    public void ignore(final Collection<Player> players, final boolean ignore, final Reason reason) {
+        final long start = Profiler.start();
+        try {
+            if (!ignore && this.forcing) {
+                this.plugin.getLogger().log(Level.FINEST, "[{0}] Cancelling bulk change to not ignore sleep (forcing)", this.world.getName());
+                return;
+            }
+
+            final Set<Player> requested = new LinkedHashSet<Player>();
+            for (final Player player : players) {
+                if (player.isSleepingIgnored() == ignore) continue; // don't modify if already set as expected
+
+                if (!ignore && !Main.permissions.has(player, "sleep.consider")) {
+                    this.plugin.getLogger().log(Level.FINEST, "[{0}] Cancelling {1} changing to not ignore sleep (permission)"
+                            , new Object[] { this.world.getName(), player.getName()});
+                    continue;
+                }
+
+                requested.add(player);
+            }
+            if (requested.size() == 0) return;
+
+            this.plugin.getLogger().log(Level.FINEST, "[{0}] Setting {1} players to {2,choice,0#not |1#}ignore sleep ({3})"
+                    , new Object[] { this.world.getName(), requested.size(), ignore?1:0, reason.getKey() });
+
+            // allow overrides to cancel change for all or individual players
+            final SleepBulkIgnore event = new SleepBulkIgnore(this.world, requested, ignore, reason);
+            Bukkit.getPluginManager().callEvent(event);
+            if (event.isCancelled()) return;
+
+            final int before = this.needed();
+            final Set<Player> changed = new LinkedHashSet<Player>();
+            for (final Player player : requested) {
+                if (event.isCancelled(player)) continue;
+                this.setIgnored(player, ignore);
+                changed.add(player);
+            }
+            if (changed.size() == 0) return;
+            final int after = this.needed();
+
+            // alert to change
+            Bukkit.getPluginManager().callEvent(new SleepBulkIgnoredChanged(this.world, changed, ignore, reason));
+
+            // notify once, on behalf of the first player changed, when at least one player in bed and the needed quantity changes
+            if ((this.sleeping.size() >= 1) && (before != after))
+                this.notify(reason, changed.iterator().next(), after);
 
-        if (!ignore && this.forcing) {
-            this.plugin.getLogger().log(Level.FINEST, "[{0}] Cancelling {1} changing to not ignore sleep (forcing)"
-                    , new Object[] { this.world.getName(), player.getName()});
-            return;
+            this.changed("bulk ignore");
+        } finally {
+            Profiler.record(this.world, "State.ignore-bulk", start);
         }
+    }
 
-        // allow overrides to cancel change
-        final Event event = ( ignore ? new SleepIgnore(player, reason) : new SleepComply(player, reason) );
-        Bukkit.getPluginManager().callEvent(event);
-        if (((Cancellable) event).isCancelled()) return;
+    /**
+     * set whether or not a player ignores sleep status checks without
+     * raising events or notifications (used by supplements that adjust a
+     * player before a state change that will notify itself)
+     */
+    public void ignoreQuietly(final Player player, final boolean ignore) {
+        if (player.isSleepingIgnored() == ignore) return;
+        this.setIgnored(player, ignore);
+        this.changed("quiet ignore");
+    }
 
-        final int before = this.needed();
+    private void setIgnored(final Player player, final boolean ignore) {
         player.setSleepingIgnored(ignore);
-        final int after = this.needed();
+        if (this.isTracked(player)) this.ignored += ( ignore ? 1 : -1 );
+    }
 
-        // alert to change
-        Bukkit.getPluginManager().callEvent(new SleepIgnoredChanged(player, reason));
+    private void changed(final String transition) {
+        this.verify(transition);
+        this.publish();
+    }
+
+    /** mark the snapshot out of date; rebuilt during the next tick */
+    private void publish() {
+        if (this.publication.isScheduled()) return;
+        Main.clock.schedule(this.publication, 1);
+    }
 
-        // notify when at least one player in bed and the needed quantity changes
-        if ((this.sleeping.size() >= 1) && (before != after))
-            this.notify(reason, player, after);
+    /** replace the snapshot available to other threads with the current state */
+    private void snapshot() {
+        this.publication.cancel();
+        final List<String> preventing = new ArrayList<String>();
+        for (final Player player : this.preventing()) preventing.add(player.getName());
+        this.snapshot = new SleepSnapshot(this.world.getName(), this.sleeping.size(), this.possibleCount(), this.needed(), this.forcing, preventing, this.dawn, this.dawnEta);
     }
 
+    /**
+     * record when dawn is expected and publish it with the world status
+     * @param ticks server ticks until dawn; -1 when no longer predicted
+     */
+    public void predictDawn(final long ticks) {
+        this.dawn = ticks;
+        this.dawnEta = ( ticks < 0 ? 0 : System.currentTimeMillis() + ticks * 1000 / Main.TICKS_PER_SECOND );
+        this.publish();
+    }
+
+    /** @return predicted time of dawn (milliseconds since epoch); 0 when not predicted */
+    public long getDawnEta() {
+        return this.dawnEta;
+    }
+
+    /** @return latest immutable copy of this state; safe to call from any thread */
+    public SleepSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /** compare tracked counts to a full recalculation and correct any drift (sleeping ignored could be changed by other plugins) */
+    private void verify(final String transition) {
+        if (!this.verifyCounts) return;
+
+        int actual = 0;
+        for (final Player player : this.players)
+            if (player.isSleepingIgnored())
+                actual++;
+
+        if (actual == this.ignored) return;
+
+        this.plugin.getLogger().log(Level.WARNING, "[{0}] Tracked ignored count {1} does not match actual {2} after {3}; Correcting"
+                , new Object[] { this.world.getName(), this.ignored, actual, transition });
+        this.ignored = actual;
+    }
+
+    /** notification event is raised immediately so supplements decide while the change is current; only the announcement is coalesced */
     void notify(final Reason reason, final Player player, final int needed) {
         if (this.forcing) return;
 
-        final SleepNotify event = new SleepNotify(this.world, reason, player, this.sleeping.size(), this.possible().size(), needed);
+        final SleepNotify event = new SleepNotify(this.world, reason, player, this.sleeping.size(), this.possibleCount(), needed);
         Bukkit.getPluginManager().callEvent(event);
         if (!event.isCancelled()) {
             final String name = this.courier.format("player", player.getName(), player.getDisplayName());
-            this.courier.announce(this.world, reason.getKey(), name, event.getNeeded(), event.getSleeping(), event.getPossible());
+            if (this.coalesce > 0) {
+                this.pending.update(reason, name, event.getNeeded(), event.getSleeping(), event.getPossible());
+            } else {
+                this.courier.announce(this.world, reason.getKey(), name, event.getNeeded(), event.getSleeping(), event.getPossible());
+            }
         }
 
-        if (event.getNeeded() == 0 && (this.forceCount != -1 || this.forcePercent != -1) && this.preventing().size() >= 1 )
+        if (event.getNeeded() == 0 && (this.forceCount != -1 || this.forcePercent != -1) && this.isPreventing())
             this.force(null);
     }
 
+    /** @return true if player is in world and considered part of sleep state calculations */
+    public boolean isTracked(final Player player) {
+        return this.playerIndex.containsKey(player.getUniqueId());
+    }
+
+    /** @return true if player is tracked as in bed */
+    public boolean isSleeping(final Player player) {
+        return this.sleepingIndex.contains(player.getUniqueId());
+    }
+
     /** players not ignored and not in bed */
     public List<Player> preventing() {
-        final List<Player> preventing = new ArrayList<Player>(this.players);
-
-        final Iterator<Player> it = preventing.iterator();
-        while (it.hasNext()) {
-            final Player player = it.next();
-            if (player.isSleepingIgnored() || this.sleeping.contains(player.getUniqueId()))
-                it.remove();
-        }
+        final List<Player> preventing = new ArrayList<Player>();
+        for (final Player player : this.players)
+            if (!player.isSleepingIgnored() && !this.sleepingIndex.contains(player.getUniqueId()))
+                preventing.add(player);
 
         return preventing;
     }
 
+    /** @return true if at least one player is not ignored and not in bed */
+    public boolean isPreventing() {
+        for (final Player player : this.players)
+            if (!player.isSleepingIgnored() && !this.sleepingIndex.contains(player.getUniqueId()))
+                return true;
+
+        return false;
+    }
+
     /** @return players not ignored */
     public List<Player> possible() {
-        final List<Player> possible = new ArrayList<Player>(this.players);
-
-        final Iterator<Player> it = possible.iterator();
-        while (it.hasNext())
-            if (it.next().isSleepingIgnored())
-                it.remove();
+        final List<Player> possible = new ArrayList<Player>();
+        for (final Player player : this.players)
+            if (!player.isSleepingIgnored())
+                possible.add(player);
 
         return possible;
     }
 
+    /** @return number of players not ignored */
+    public int possibleCount() {
+        return this.players.size() - this.ignored;
+    }
+
+    /** @return number of players ignoring sleep */
+    public int ignoredCount() {
+        return this.ignored;
+    }
+
     /** @return number of players still needing to enter bed (or be ignored) for sleep to occur; 0 if no more are needed */
     public int needed() {
-        final int possible = this.possible().size();
+        final int possible = this.possibleCount();
         final int sleeping = this.sleeping.size();
 
         // need 100% of possible if percent not specified
@@ -262,4 +606,113 @@ public final class State {
         return need;
     }
 
+
+
+    /**
+     * combines announcements within the coalesce window into one announcement
+     * of the last notification not cancelled; earlier players and reasons are dropped
+     */
+    private final class CoalescedNotify implements Runnable {
+
+        private final Clock.Task task = new Clock.Task(this);
+        private Reason reason = null;
+        private String name = null;
+        private int needed;
+        private int sleeping;
+        private int possible;
+
+        /** record the latest announcement and schedule delivery if not already pending */
+        private void update(final Reason reason, final String name, final int needed, final int sleeping, final int possible) {
+            this.reason = reason;
+            this.name = name;
+            this.needed = needed;
+            this.sleeping = sleeping;
+            this.possible = possible;
+            if (this.task.isScheduled()) return;
+
+            Main.clock.schedule(this.task, State.this.coalesce);
+        }
+
+        /** apply a changed coalesce window to a pending announcement, delivering it now if no longer coalescing */
+        private void reschedule() {
+            if (!this.task.isScheduled()) return;
+
+            this.task.cancel();
+            if (State.this.coalesce > 0) {
+                Main.clock.schedule(this.task, State.this.coalesce);
+                return;
+            }
+
+            this.run();
+        }
+
+        private void cancel() {
+            this.task.cancel();
+            this.reason = null;
+            this.name = null;
+        }
+
+        @Override
+        public void run() {
+            final Reason reason = this.reason;
+            final String name = this.name;
+            this.cancel();
+
+            if (State.this.forcing) return;
+            State.this.courier.announce(State.this.world, reason.getKey(), name, this.needed, this.sleeping, this.possible);
+        }
+
+    }
+
+
+
+
+    /**
+     * read-only list over an insertion ordered collection; size, membership
+     * and iteration use the collection directly, positional access walks it
+     */
+    private static class OrderedView<E> extends AbstractList<E> {
+
+        private final Collection<E> source;
+
+        private OrderedView(final Collection<E> source) {
+            this.source = source;
+        }
+
+        @Override
+        public E get(final int index) {
+            if (index < 0 || index >= this.source.size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.source.size());
+            final Iterator<E> it = this.source.iterator();
+            for (int i = 0; i < index; i++) it.next();
+            return it.next();
+        }
+
+        @Override
+        public int size() {
+            return this.source.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return this.source.contains(o);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return Collections.unmodifiableCollection(this.source).iterator();
+        }
+
+    }
+
+
+
+    private final class Publication implements Runnable {
+
+        @Override
+        public void run() {
+            State.this.snapshot();
+        }
+
+    }
+
 }
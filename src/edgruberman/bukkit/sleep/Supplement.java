@@ -1,45 +1,155 @@
 package edgruberman.bukkit.sleep;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
-import org.bukkit.event.server.PluginDisableEvent;
-import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.event.player.PlayerBedEnterEvent;
+import org.bukkit.event.player.PlayerBedLeaveEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.plugin.Plugin;
 
+import edgruberman.bukkit.playeractivity.PlayerMoveBlockEvent;
+import edgruberman.bukkit.sleep.events.SleepAdd;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnore;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnoredChanged;
+import edgruberman.bukkit.sleep.events.SleepComply;
+import edgruberman.bukkit.sleep.events.SleepEnter;
+import edgruberman.bukkit.sleep.events.SleepIgnoredChanged;
+import edgruberman.bukkit.sleep.events.SleepLeave;
+import edgruberman.bukkit.sleep.events.SleepNotify;
+import edgruberman.bukkit.sleep.events.SleepRemove;
+import edgruberman.bukkit.sleep.events.SleepStatus;
 import edgruberman.bukkit.sleep.util.CustomLevel;
+import edgruberman.bukkit.sleep.util.ProfiledExecutor;
 
+/**
+ * world specific sleep behavior; sleep related events are routed only to the
+ * supplements of the world they occur in, based on which of the handler
+ * interfaces below a supplement implements
+ */
 public class Supplement implements Listener {
 
-    private static final Map<Class<? extends Supplement>, List<Supplement>> instances = new HashMap<Class<? extends Supplement>, List<Supplement>>();
+    /** handler interfaces {@link Somnologist} routes events for */
+    static final Class<?>[] HANDLERS = new Class<?>[] {
+          NotifyHandler.class, StatusHandler.class
+        , ComplyHandler.class, BulkComplyHandler.class
+        , IgnoredChangedHandler.class, BulkIgnoredChangedHandler.class
+        , AddHandler.class, RemoveHandler.class
+        , EnterHandler.class, LeaveHandler.class
+        , BedEnterHandler.class, BedLeaveHandler.class
+        , WorldChangeHandler.class
+        , MoveBlockHandler.class, TeleportHandler.class
+    };
+
+    /** before a notification is sent to the world (skipped once cancelled) */
+    public interface NotifyHandler { void onSleepNotify(SleepNotify notify); }
+
+    /** before the status command responds (skipped once cancelled) */
+    public interface StatusHandler { void onSleepStatus(SleepStatus status); }
+
+    /** before a player stops ignoring sleep (skipped once cancelled) */
+    public interface ComplyHandler { void onSleepComply(SleepComply comply); }
+
+    /** before a group of players stop ignoring sleep (skipped once cancelled) */
+    public interface BulkComplyHandler { void onSleepBulkComply(SleepBulkIgnore comply); }
+
+    /** after a player changed their sleeping ignored value */
+    public interface IgnoredChangedHandler { void onSleepIgnoredChanged(SleepIgnoredChanged changed); }
+
+    /** after a group of players changed their sleeping ignored value */
+    public interface BulkIgnoredChangedHandler { void onSleepBulkIgnoredChanged(SleepBulkIgnoredChanged changed); }
+
+    /** after a player is added to the world */
+    public interface AddHandler { void onSleepAdd(SleepAdd add); }
+
+    /** after a player is removed from the world */
+    public interface RemoveHandler { void onSleepRemove(SleepRemove remove); }
+
+    /** after a player enters bed and the state is updated */
+    public interface EnterHandler { void onSleepEnter(SleepEnter enter); }
+
+    /** after a player leaves bed and the state is updated */
+    public interface LeaveHandler { void onSleepLeave(SleepLeave leave); }
+
+    /** player entered bed, before the state is updated (skipped if cancelled) */
+    public interface BedEnterHandler { void onPlayerBedEnter(PlayerBedEnterEvent enter); }
+
+    /** player left bed, before the state is updated */
+    public interface BedLeaveHandler { void onPlayerBedLeave(PlayerBedLeaveEvent leave); }
+
+    /** player arrived in the world, before the state adds the player */
+    public interface WorldChangeHandler { void onPlayerChangedWorld(PlayerChangedWorldEvent changed); }
+
+    /** player moved to a different block in the world */
+    public interface MoveBlockHandler { void onPlayerMoveBlock(PlayerMoveBlockEvent move); }
+
+    /** player teleported within the world (skipped if cancelled) */
+    public interface TeleportHandler { void onPlayerTeleport(PlayerTeleportEvent teleport); }
+
+    /** creates supplements for each world without reflection */
+    public interface Factory { Supplement create(Plugin implementor, State state, ConfigurationSection config); }
 
-    private static void add(final Supplement instance) {
-        List<Supplement> instances = Supplement.instances.get(instance.getClass());
-        if (instances == null) {
-            instances = new ArrayList<Supplement>();
-            Supplement.instances.put(instance.getClass(), instances);
-        }
-        instances.add(instance);
-    }
+
+
+    private static final SupplementRegistry registry = new SupplementRegistry();
 
     static void unload(final Class<? extends Supplement> clazz) {
-        final List<Supplement> instances = Supplement.instances.remove(clazz);
-        if (instances != null) Supplement.unload(instances);
+        Supplement.unload(Supplement.registry.get(clazz));
+    }
+
+    static void unload(final Plugin implementor) {
+        Supplement.unload(Supplement.registry.get(implementor));
     }
 
     static void unloadAll() {
-        for (final List<Supplement> instances : Supplement.instances.values()) Supplement.unload(instances);
-        Supplement.instances.clear();
+        Supplement.unload(Supplement.registry.getAll());
+    }
+
+    /** unload all supplements attached to a state */
+    static void unload(final State state) {
+        final List<Supplement> attached = new ArrayList<Supplement>();
+        for (final Supplement instance : Supplement.registry.get(state.world))
+            if (instance.state == state)
+                attached.add(instance);
+
+        Supplement.unload(attached);
+    }
+
+    /** unload supplements of a specific class attached to a state */
+    static void unload(final State state, final Class<? extends Supplement> clazz) {
+        final List<Supplement> attached = new ArrayList<Supplement>();
+        for (final Supplement instance : Supplement.registry.get(state.world))
+            if (instance.state == state && instance.getClass() == clazz)
+                attached.add(instance);
+
+        Supplement.unload(attached);
+    }
+
+    /**
+     * warn about and unload supplements for the state's world that are
+     * attached to a different state, or to this state after it is unloaded
+     */
+    static void releaseLeaked(final State state, final boolean unloaded) {
+        final List<Supplement> leaked = new ArrayList<Supplement>();
+        for (final Supplement instance : Supplement.registry.get(state.world))
+            if ((instance.state == state) == unloaded)
+                leaked.add(instance);
+
+        if (leaked.size() == 0) return;
+
+        for (final Supplement instance : leaked)
+            instance.implementor.getLogger().log(Level.WARNING, "[{0}] {1} Sleep supplement outlived its world sleep state; Unloading"
+                    , new Object[] { state.world.getName(), instance.getClass().getSimpleName() });
+
+        Supplement.unload(leaked);
     }
 
     private static void unload(final List<Supplement> instances) {
@@ -63,31 +173,29 @@ public class Supplement implements Listener {
     protected final State state;
     protected final Plugin implementor;
 
+    /** configuration section name supplement was loaded from */
+    final String section;
+
     protected Supplement(final Plugin implementor, final State state, final ConfigurationSection config) {
         this.state = state;
         this.implementor = implementor;
-        Bukkit.getPluginManager().registerEvents(this, this.implementor);
-        Supplement.add(this);
-    }
-
-    @EventHandler(ignoreCancelled = true)
-    private final void onWorldUnload(final WorldUnloadEvent unload) {
-        if (!unload.getWorld().equals(this.state.world)) return;
-        this.unload();
+        this.section = config.getName();
     }
 
-    @EventHandler
-    private final void onPluginDisable(final PluginDisableEvent disable) {
-        if (!disable.getPlugin().equals(this.implementor)) return;
-        this.unload();
+    /** start receiving events; called only after the subclass constructor completes */
+    final void load() {
+        ProfiledExecutor.registerEvents(this, this.implementor, this.state.world, this.getClass());
+        Supplement.registry.add(this);
+        this.state.attach(this);
     }
 
     private final void unload() {
         try {
             this.onUnload();
         } finally {
+            this.state.detach(this);
             HandlerList.unregisterAll(this);
-            Supplement.instances.remove(this);
+            Supplement.registry.remove(this);
         }
     }
 
@@ -1,8 +1,13 @@
 package edgruberman.bukkit.sleep;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
@@ -24,8 +29,9 @@ public final class SupplementManager implements Listener {
         Bukkit.getPluginManager().registerEvents(this, plugin);
     }
 
-    public void register(final Plugin implementor, final Class<? extends Supplement> supplement, final String section) {
-        final SupplementRegistration reg = new SupplementRegistration(implementor, supplement, section);
+    public void register(final Plugin implementor, final Class<? extends Supplement> supplement, final String section, final Supplement.Factory factory) {
+        if (factory == null) throw new IllegalArgumentException("Supplement factory required for " + supplement.getName());
+        final SupplementRegistration reg = new SupplementRegistration(implementor, supplement, section, factory);
         this.registered.add(reg);
 
         // load for existing states
@@ -34,15 +40,18 @@ public final class SupplementManager implements Listener {
             this.loadSupplement(reg, state);
     }
 
+    /** compatibility for supplements without a factory; constructor is resolved once here instead of for each world */
+    public void register(final Plugin implementor, final Class<? extends Supplement> supplement, final String section) {
+        this.register(implementor, supplement, section, new ReflectiveFactory(supplement));
+    }
+
     public void deregister(final Plugin implementor) {
         final Iterator<SupplementRegistration> it = this.registered.iterator();
-        while (it.hasNext()) {
-            final SupplementRegistration reg = it.next();
-            if (reg.implementor.equals(implementor)) {
+        while (it.hasNext())
+            if (it.next().implementor.equals(implementor))
                 it.remove();
-                Supplement.unload(reg.supplement);
-            }
-        }
+
+        Supplement.unload(implementor);
     }
 
     public void deregister(final Class<? extends Supplement> clazz) {
@@ -59,15 +68,49 @@ public final class SupplementManager implements Listener {
             this.loadSupplement(reg, state);
     }
 
+    /**
+     * rebuild only supplements whose configuration section differs from the
+     * previous configuration; unchanged supplements remain loaded as is
+     * @return number of supplement sections rebuilt
+     */
+    int reloadSupplements(final State state, final ConfigurationSection previous) {
+        int rebuilt = 0;
+        for (final SupplementRegistration reg : this.registered) {
+            if (SupplementManager.values(previous, reg.section).equals(SupplementManager.values(state.getConfig(), reg.section))) continue;
+
+            reg.implementor.getLogger().log(Level.FINE, "[{0}] Configuration changed for {1} Sleep supplement (section: {2})"
+                    , new Object[] { state.world.getName(), reg.supplement.getSimpleName(), reg.section });
+            Supplement.unload(state, reg.supplement);
+            this.loadSupplement(reg, state);
+            rebuilt++;
+        }
+        return rebuilt;
+    }
+
+    /** @return leaf values, including defaults, under path for structural comparison */
+    private static Map<String, Object> values(final ConfigurationSection config, final String path) {
+        final ConfigurationSection section = config.getConfigurationSection(path);
+        if (section == null) return Collections.singletonMap(path, config.get(path));
+
+        final Map<String, Object> values = new HashMap<String, Object>();
+        for (final Map.Entry<String, Object> value : section.getValues(true).entrySet())
+            if (!(value.getValue() instanceof ConfigurationSection))
+                values.put(value.getKey(), value.getValue());
+
+        return values;
+    }
+
     private void loadSupplement(final SupplementRegistration reg, final State state) {
-        final ConfigurationSection supplementSection = state.config.getConfigurationSection(reg.section);
+        final ConfigurationSection supplementSection = state.getConfig().getConfigurationSection(reg.section);
         if (supplementSection == null || !supplementSection.getBoolean("enabled")) return;
 
         reg.implementor.getLogger().log(Level.CONFIG, "[{0}] Loading {1} Sleep supplement (section: {2}) ..."
                 , new Object[] { state.world.getName(), reg.supplement.getSimpleName(), reg.section });
 
         try {
-            reg.supplement.getConstructor(Plugin.class, State.class, ConfigurationSection.class).newInstance(reg.implementor, state, supplementSection);
+            final Supplement supplement = reg.factory.create(reg.implementor, state, supplementSection);
+            if (supplement == null) throw new IllegalStateException("Factory returned no supplement");
+            supplement.load();
         } catch (final Exception e) {
             reg.implementor.getLogger().log(Level.WARNING, "[{0}] Unable to load {1} Sleep supplement (section: {3}, class: {2}); {4}: {5}"
                     , new Object[] { state.world.getName(), reg.supplement.getSimpleName(), reg.supplement.getName(), reg.section, e, e.getCause() });
@@ -93,11 +136,38 @@ public final class SupplementManager implements Listener {
         private final Plugin implementor;
         private final Class<? extends Supplement> supplement;
         private final String section;
+        private final Supplement.Factory factory;
 
-        private SupplementRegistration(final Plugin implementor, final Class<? extends Supplement> supplement, final String section) {
+        private SupplementRegistration(final Plugin implementor, final Class<? extends Supplement> supplement, final String section, final Supplement.Factory factory) {
             this.implementor = implementor;
             this.supplement = supplement;
             this.section = section;
+            this.factory = factory;
+        }
+
+    }
+
+    private final static class ReflectiveFactory implements Supplement.Factory {
+
+        private final Constructor<? extends Supplement> constructor;
+
+        private ReflectiveFactory(final Class<? extends Supplement> supplement) {
+            try {
+                this.constructor = supplement.getConstructor(Plugin.class, State.class, ConfigurationSection.class);
+            } catch (final NoSuchMethodException e) {
+                throw new IllegalArgumentException("Supplement class missing (Plugin, State, ConfigurationSection) constructor: " + supplement.getName(), e);
+            }
+        }
+
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            try {
+                return this.constructor.newInstance(implementor, state, config);
+            } catch (final InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
         }
 
     }
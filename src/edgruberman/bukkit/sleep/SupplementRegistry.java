@@ -0,0 +1,81 @@
+package edgruberman.bukkit.sleep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * loaded supplements indexed by world, implementing plugin and class so
+ * removal costs only what is removed; worlds are indexed by name to avoid
+ * retaining unloaded worlds and to match a reloaded world to its predecessor
+ */
+final class SupplementRegistry {
+
+    private static <K> void index(final Map<K, Set<Supplement>> index, final K key, final Supplement supplement) {
+        Set<Supplement> indexed = index.get(key);
+        if (indexed == null) {
+            indexed = new LinkedHashSet<Supplement>();
+            index.put(key, indexed);
+        }
+        indexed.add(supplement);
+    }
+
+    private static <K> void deindex(final Map<K, Set<Supplement>> index, final K key, final Supplement supplement) {
+        final Set<Supplement> indexed = index.get(key);
+        if (indexed == null) return;
+
+        indexed.remove(supplement);
+        if (indexed.isEmpty()) index.remove(key);
+    }
+
+    /** @return copy of indexed supplements, in load order */
+    private static <K> List<Supplement> get(final Map<K, Set<Supplement>> index, final K key) {
+        final Set<Supplement> indexed = index.get(key);
+        if (indexed == null) return Collections.emptyList();
+        return new ArrayList<Supplement>(indexed);
+    }
+
+
+
+    private final Map<String, Set<Supplement>> byWorld = new HashMap<String, Set<Supplement>>();
+    private final Map<Plugin, Set<Supplement>> byPlugin = new HashMap<Plugin, Set<Supplement>>();
+    private final Map<Class<? extends Supplement>, Set<Supplement>> byClass = new HashMap<Class<? extends Supplement>, Set<Supplement>>();
+
+    void add(final Supplement supplement) {
+        SupplementRegistry.index(this.byWorld, supplement.state.world.getName(), supplement);
+        SupplementRegistry.index(this.byPlugin, supplement.implementor, supplement);
+        SupplementRegistry.index(this.byClass, supplement.getClass(), supplement);
+    }
+
+    void remove(final Supplement supplement) {
+        SupplementRegistry.deindex(this.byWorld, supplement.state.world.getName(), supplement);
+        SupplementRegistry.deindex(this.byPlugin, supplement.implementor, supplement);
+        SupplementRegistry.deindex(this.byClass, supplement.getClass(), supplement);
+    }
+
+    List<Supplement> get(final World world) {
+        return SupplementRegistry.get(this.byWorld, world.getName());
+    }
+
+    List<Supplement> get(final Plugin implementor) {
+        return SupplementRegistry.get(this.byPlugin, implementor);
+    }
+
+    List<Supplement> get(final Class<? extends Supplement> clazz) {
+        return SupplementRegistry.get(this.byClass, clazz);
+    }
+
+    List<Supplement> getAll() {
+        final List<Supplement> all = new ArrayList<Supplement>();
+        for (final Set<Supplement> indexed : this.byClass.values()) all.addAll(indexed);
+        return all;
+    }
+
+}
@@ -3,22 +3,27 @@ package edgruberman.bukkit.sleep.commands;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
-import org.bukkit.plugin.Plugin;
 
 import edgruberman.bukkit.sleep.Main;
 
 public final class Reload implements CommandExecutor {
 
-    private final Plugin plugin;
+    private final Main plugin;
 
-    public Reload(final Plugin plugin) {
+    public Reload(final Main plugin) {
         this.plugin = plugin;
     }
 
+    // usage: /<command>[ full]
     @Override
     public boolean onCommand(final CommandSender sender, final Command command, final String label, final String[] args) {
-        this.plugin.onDisable();
-        this.plugin.onEnable();
+        if (args.length >= 1 && args[0].equalsIgnoreCase("full")) {
+            this.plugin.onDisable();
+            this.plugin.onEnable();
+        } else {
+            this.plugin.reloadChanges();
+        }
+
         Main.courier.send(sender, "reload", this.plugin.getName());
         return true;
     }
@@ -47,26 +47,26 @@ public final class Status implements CommandExecutor {
 
         final int needed = state.needed();
         final int sleeping = state.sleeping.size();
-        final int possible = state.possible().size();
+        final int possible = state.possibleCount();
 
         final SleepStatus event = new SleepStatus(world, sender, sleeping, possible, needed);
         Bukkit.getPluginManager().callEvent(event);
         if (event.isCancelled()) return true;
 
         if (state.sleeping.size() == 0) {
-            state.courier.send(sender, "command-status.none");
+            state.getCourier().send(sender, "command-status.none");
 
         } else {
             final List<Player> preventing = state.preventing();
             Collections.sort(preventing, new DisplayNameComparator());
 
-            final List<String> names = new JoinList<String>(state.courier.getBase().getConfigurationSection("command-status.need-players"));
-            for (final Player player : preventing) names.add(state.courier.format("player", player.getName(), player.getDisplayName()));
-            state.courier.send(sender, "command-status.need", names.size(), names);
+            final List<String> names = new JoinList<String>(state.getCourier().getBase().getConfigurationSection("command-status.need-players"));
+            for (final Player player : preventing) names.add(state.getCourier().format("player", player.getName(), player.getDisplayName()));
+            state.getCourier().send(sender, "command-status.need", names.size(), names);
         }
 
         final int percent = (int) Math.floor((double) event.getSleeping() / ( event.getPossible() > 0 ? event.getPossible() : 1 ) * 100);
-        state.courier.send(sender, "command-status.summary", percent, event.getNeeded(), event.getSleeping(), event.getPossible());
+        state.getCourier().send(sender, "command-status.summary", percent, event.getNeeded(), event.getSleeping(), event.getPossible());
         return true;
     }
 
@@ -0,0 +1,47 @@
+package edgruberman.bukkit.sleep.commands;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import edgruberman.bukkit.sleep.Main;
+import edgruberman.bukkit.sleep.util.Profiler;
+import edgruberman.bukkit.sleep.util.Profiler.Summary;
+
+public final class Timings implements CommandExecutor {
+
+    // usage: /<command>[ on| off]
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command command, final String label, final String[] args) {
+        if (args.length >= 1) {
+            if (!args[0].equalsIgnoreCase("on") && !args[0].equalsIgnoreCase("off")) {
+                Main.courier.send(sender, "unknown-argument", "on|off", args[0]);
+                return false;
+            }
+
+            Profiler.setEnabled(args[0].equalsIgnoreCase("on"));
+            Main.courier.send(sender, "timings.enabled", ( Profiler.isEnabled() ? 1 : 0 ));
+            return true;
+        }
+
+        final long elapsed = Profiler.elapsed();
+        final Map<String, List<Summary>> summaries = Profiler.reset();
+        if (summaries.isEmpty()) {
+            Main.courier.send(sender, "timings.none", ( Profiler.isEnabled() ? 1 : 0 ));
+            return true;
+        }
+
+        Main.courier.send(sender, "timings.header", TimeUnit.NANOSECONDS.toSeconds(elapsed));
+        for (final Map.Entry<String, List<Summary>> world : summaries.entrySet())
+            for (final Summary summary : world.getValue())
+                Main.courier.send(sender, "timings.entry", world.getKey(), summary.label, summary.count
+                        , summary.p50 / 1000D, summary.p99 / 1000D, summary.max / 1000D);
+
+        return true;
+    }
+
+}
@@ -0,0 +1,87 @@
+package edgruberman.bukkit.sleep.events;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.world.WorldEvent;
+
+import edgruberman.bukkit.sleep.Reason;
+
+/**
+ * raised before a group of players will change whether they ignore sleep;
+ * individual players can be cancelled to exclude them from the change
+ */
+public class SleepBulkIgnore extends WorldEvent implements Cancellable {
+
+    private final Set<Player> players;
+    private final boolean ignore;
+    private final Reason reason;
+    private final Set<Player> excluded = new HashSet<Player>();
+
+    public SleepBulkIgnore(final World world, final Set<Player> players, final boolean ignore, final Reason reason) {
+        super(world);
+        this.players = Collections.unmodifiableSet(players);
+        this.ignore = ignore;
+        this.reason = reason;
+    }
+
+    /** @return players requested to change */
+    public Set<Player> getPlayers() {
+        return this.players;
+    }
+
+    /** @return true if players will start ignoring sleep; false if players will stop ignoring sleep */
+    public boolean isIgnore() {
+        return this.ignore;
+    }
+
+    public Reason getReason() {
+        return this.reason;
+    }
+
+    public boolean isCancelled(final Player player) {
+        return this.cancelled || this.excluded.contains(player);
+    }
+
+    /** exclude an individual player from the change */
+    public void setCancelled(final Player player, final boolean cancel) {
+        if (cancel) {
+            this.excluded.add(player);
+        } else {
+            this.excluded.remove(player);
+        }
+    }
+
+    // --- cancellable event ----
+
+    private boolean cancelled = false;
+
+    @Override
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    @Override
+    public void setCancelled(final boolean cancel) {
+        this.cancelled = cancel;
+    }
+
+    // ---- event handlers ----
+
+    private static final HandlerList handlers = new HandlerList();
+
+    public static HandlerList getHandlerList() {
+        return SleepBulkIgnore.handlers;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return SleepBulkIgnore.handlers;
+    }
+
+}
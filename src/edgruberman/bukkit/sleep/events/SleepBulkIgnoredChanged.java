@@ -0,0 +1,54 @@
+package edgruberman.bukkit.sleep.events;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.world.WorldEvent;
+
+import edgruberman.bukkit.sleep.Reason;
+
+/** raised after a group of players have changed their sleeping ignored value and the state has been updated */
+public class SleepBulkIgnoredChanged extends WorldEvent {
+
+    private final Set<Player> players;
+    private final boolean ignore;
+    private final Reason reason;
+
+    public SleepBulkIgnoredChanged(final World world, final Set<Player> players, final boolean ignore, final Reason reason) {
+        super(world);
+        this.players = Collections.unmodifiableSet(players);
+        this.ignore = ignore;
+        this.reason = reason;
+    }
+
+    /** @return players whose sleeping ignored value changed */
+    public Set<Player> getPlayers() {
+        return this.players;
+    }
+
+    /** @return true if players started ignoring sleep; false if players stopped ignoring sleep */
+    public boolean isIgnore() {
+        return this.ignore;
+    }
+
+    public Reason getReason() {
+        return this.reason;
+    }
+
+    // ---- event handlers ----
+
+    private static final HandlerList handlers = new HandlerList();
+
+    public static HandlerList getHandlerList() {
+        return SleepBulkIgnoredChanged.handlers;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return SleepBulkIgnoredChanged.handlers;
+    }
+
+}
@@ -50,6 +50,18 @@ public class SleepNotify extends WorldEvent implements Cancellable {
         this.needed = needed;
     }
 
+    private boolean finished = false;
+
+    /** @return true when no further notification stages will process this event */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /** skip remaining notification stages; notification is still sent unless cancelled */
+    public void finish() {
+        this.finished = true;
+    }
+
     // --- cancellable event ----
 
     private boolean cancelled = false;
@@ -11,6 +11,8 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.Plugin;
 
+import edgruberman.bukkit.sleep.util.Profiler;
+
 /**
  * handles message delivery and logging
  * @author EdGruberman (ed@rjump.com)
@@ -92,8 +94,10 @@ public interface Courier {
 
         @Override
         public void submit(final RecipientList recipients, final Message message) {
+            final long start = Profiler.start();
             final Message.Confirmation confirmation = message.deliver(recipients);
             this.logger.log(confirmation.toLogRecord());
+            Profiler.record(( recipients instanceof RecipientList.WorldPlayers ? ((RecipientList.WorldPlayers) recipients).getWorld() : null ), "Courier", start);
         }
 
         @Override
@@ -5,7 +5,6 @@ import java.util.logging.Level;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
 import org.bukkit.event.player.PlayerBedLeaveEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.metadata.MetadataValue;
@@ -13,12 +12,22 @@ import org.bukkit.plugin.Plugin;
 
 import edgruberman.bukkit.playeractivity.consumers.away.PlayerAway;
 import edgruberman.bukkit.playeractivity.consumers.away.PlayerBack;
+import edgruberman.bukkit.sleep.Main;
 import edgruberman.bukkit.sleep.Supplement;
 import edgruberman.bukkit.sleep.Reason;
 import edgruberman.bukkit.sleep.State;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnore;
 import edgruberman.bukkit.sleep.events.SleepComply;
 
-public final class Away extends Supplement {
+public final class Away extends Supplement
+        implements Supplement.ComplyHandler, Supplement.BulkComplyHandler, Supplement.WorldChangeHandler, Supplement.BedLeaveHandler {
+
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new Away(implementor, state, config);
+        }
+    };
 
     public static final Reason AWAY = new Reason("AWAY", "away.away");
     public static final Reason BACK = new Reason("BACK", "away.back");
@@ -30,7 +39,7 @@ public final class Away extends Supplement {
     }
 
     private boolean isAway(final Player player) {
-        if (!player.hasPermission("sleep.away")) return false;
+        if (!Main.permissions.has(player, "sleep.away")) return false;
 
         for (final MetadataValue value : player.getMetadata("away"))
             return value.asBoolean();
@@ -52,28 +61,32 @@ public final class Away extends Supplement {
         this.allowComply = false;
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepComply(final SleepComply comply) {
+    @Override
+    public void onSleepComply(final SleepComply comply) {
         if (this.allowComply) return;
-        if (!comply.getPlayer().getWorld().equals(this.state.world)) return;
         if (!this.isAway(comply.getPlayer())) return;
         this.implementor.getLogger().log(Level.FINEST, "[{0}] Cancelling {1} changing to not ignore sleep (away)"
                 , new Object[] { this.state.world.getName(), comply.getPlayer().getName()});
         comply.setCancelled(true);
     }
 
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW) // process before state update to prevent leave notification
-    private void onPlayerChangedWorld(final PlayerChangedWorldEvent changed) {
-        if (!changed.getPlayer().getWorld().equals(this.state.world)) return;
+    @Override
+    public void onSleepBulkComply(final SleepBulkIgnore bulk) {
+        for (final Player player : bulk.getPlayers())
+            if (this.isAway(player))
+                bulk.setCancelled(player, true);
+    }
+
+    @Override // processed before state update to prevent leave notification
+    public void onPlayerChangedWorld(final PlayerChangedWorldEvent changed) {
         if (!this.isAway(changed.getPlayer())) return;
         this.state.ignore(changed.getPlayer(), true, Away.AWAY);
     }
 
-    @EventHandler(priority = EventPriority.LOW) // process before state update to prevent leave notification
-    private void onPlayerBedLeave(final PlayerBedLeaveEvent leave) {
-        if (!leave.getPlayer().getWorld().equals(this.state.world)) return;
+    @Override // processed before state update to prevent leave notification
+    public void onPlayerBedLeave(final PlayerBedLeaveEvent leave) {
         if (!this.isAway(leave.getPlayer())) return;
-        leave.getPlayer().setSleepingIgnored(true);
+        this.state.ignoreQuietly(leave.getPlayer(), true);
     }
 
 }
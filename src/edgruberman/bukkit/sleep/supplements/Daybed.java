@@ -21,16 +21,24 @@ import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.material.Bed;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitTask;
 
+import edgruberman.bukkit.sleep.Clock;
 import edgruberman.bukkit.sleep.Main;
 import edgruberman.bukkit.sleep.State;
 import edgruberman.bukkit.sleep.Supplement;
 import edgruberman.bukkit.sleep.craftbukkit.CraftBukkit;
 import edgruberman.bukkit.sleep.util.CustomLevel;
+import edgruberman.bukkit.sleep.util.ProfiledExecutor;
 
 public final class Daybed extends Supplement {
 
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new Daybed(implementor, state, config);
+        }
+    };
+
     private static final boolean DEFAULT_REVERT = false;
     private static final long DEFAULT_DURATION = -1;
     private static final TimeUnit DEFAULT_DURATION_SOURCE = TimeUnit.SECONDS;
@@ -87,7 +95,7 @@ public final class Daybed extends Supplement {
         this.implementor.getLogger().log(CustomLevel.TRACE, "Daybed spawn set by {0} at {2}; Previous: {1}"
                 , new Object[]{ interaction.getPlayer().getName(), previous, interaction.getClickedBlock() });
 
-        this.state.courier.send(interaction.getPlayer(), "daybed.success", Daybed.readableDuration(this.duration / 20 * 1000)
+        this.state.getCourier().send(interaction.getPlayer(), "daybed.success", Daybed.readableDuration(this.duration / 20 * 1000)
                 , previous.getWorldName(), previous.getBlockX(), previous.getBlockY(), previous.getBlockZ()
                 , head.getWorld().getName(), head.getX(), head.getY(), head.getZ()
                 , ( previous.getWorldName() == null ? 1 : 0 )
@@ -95,7 +103,7 @@ public final class Daybed extends Supplement {
 
         if (this.revert) {
             this.previous.put(interaction.getPlayer().getName(), previous);
-            this.state.courier.send(interaction.getPlayer(), "daybed.instruction", Daybed.readableDuration(this.duration / 20 * 1000)
+            this.state.getCourier().send(interaction.getPlayer(), "daybed.instruction", Daybed.readableDuration(this.duration / 20 * 1000)
                     , previous.getWorldName(), previous.getBlockX(), previous.getBlockY(), previous.getBlockZ()
                     , head.getWorld().getName(), head.getX(), head.getY(), head.getZ()
                     , ( previous.getWorldName() == null ? 1 : 0 ));
@@ -111,7 +119,7 @@ public final class Daybed extends Supplement {
     private class Reverter implements Listener {
 
         Reverter(final Plugin plugin) {
-            Bukkit.getPluginManager().registerEvents(this, plugin);
+            ProfiledExecutor.registerEvents(this, plugin, Daybed.this.state.world, Daybed.class);
         }
 
         @EventHandler(priority = EventPriority.MONITOR)
@@ -146,7 +154,7 @@ public final class Daybed extends Supplement {
             Daybed.this.implementor.getLogger().log(CustomLevel.TRACE, "Daybed spawn reverted by {0} to {1}; Daybed: {2}"
                     , new Object[]{ broken.getPlayer().getName(), previous, current });
 
-            Daybed.this.state.courier.send(broken.getPlayer(), "daybed.reverted"
+            Daybed.this.state.getCourier().send(broken.getPlayer(), "daybed.reverted"
                     , previous.getWorldName(), previous.getBlockX(), previous.getBlockY(), previous.getBlockZ()
                     , current.getWorld().getName(), current.getBlockX(), current.getBlockY(), current.getBlockZ()
                     , ( previous.getWorldName() == null ? 1 : 0 ));
@@ -159,7 +167,7 @@ public final class Daybed extends Supplement {
     private final class SpawnCommitter implements Runnable {
 
         private final String player;
-        private final BukkitTask task;
+        private final Clock.Task task = new Clock.Task(this);
         private final CapturedLocation previous;
 
         private SpawnCommitter(final Player player, final CapturedLocation previous) {
@@ -170,7 +178,7 @@ public final class Daybed extends Supplement {
             if (existing != null) existing.cancel();
 
             Daybed.this.committers.put(player.getName(), this);
-            this.task = Bukkit.getScheduler().runTaskLater(Daybed.this.implementor, this, Daybed.this.duration);
+            Main.clock.schedule(this.task, Daybed.this.duration);
         }
 
         @Override
@@ -185,7 +193,7 @@ public final class Daybed extends Supplement {
             if (target == null) return;
 
             final CapturedLocation current = new CapturedLocation(Daybed.this.cb.getBedLocation(target));
-            Daybed.this.state.courier.send(target, "daybed.committed"
+            Daybed.this.state.getCourier().send(target, "daybed.committed"
                     , this.previous.getWorldName(), this.previous.getBlockX(), this.previous.getBlockY(), this.previous.getBlockZ()
                     , current.getWorldName(), current.getBlockX(), current.getBlockY(), current.getBlockZ()
                     , ( this.previous.getWorldName() == null ? 1 : 0 ));
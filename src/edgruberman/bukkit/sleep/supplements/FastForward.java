@@ -2,15 +2,16 @@ package edgruberman.bukkit.sleep.supplements;
 
 import java.text.MessageFormat;
 
-import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.event.EventHandler;
 import org.bukkit.plugin.Plugin;
 
+import edgruberman.bukkit.sleep.Clock;
+import edgruberman.bukkit.sleep.Main;
 import edgruberman.bukkit.sleep.Reason;
 import edgruberman.bukkit.sleep.State;
 import edgruberman.bukkit.sleep.Supplement;
 import edgruberman.bukkit.sleep.events.SleepAdd;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnoredChanged;
 import edgruberman.bukkit.sleep.events.SleepEnter;
 import edgruberman.bukkit.sleep.events.SleepIgnoredChanged;
 import edgruberman.bukkit.sleep.events.SleepLeave;
@@ -19,7 +20,25 @@ import edgruberman.bukkit.sleep.events.SleepRemove;
 import edgruberman.bukkit.sleep.events.SleepStatus;
 import edgruberman.bukkit.sleep.util.CustomLevel;
 
-public final class FastForward extends Supplement implements Runnable {
+/**
+ * advances time faster as more players sleep; the world's rate is added
+ * each tick to an accumulated advance, which is applied to the world (and so
+ * sent to players) once per speed ticks; state changes only mark the rate for
+ * recalculation, which happens once on the next tick or when a notification
+ * or status needs the current rate
+ */
+public final class FastForward extends Supplement implements Runnable
+        , Supplement.NotifyHandler, Supplement.StatusHandler, Supplement.IgnoredChangedHandler, Supplement.BulkIgnoredChangedHandler
+        , Supplement.AddHandler, Supplement.RemoveHandler, Supplement.EnterHandler, Supplement.LeaveHandler {
+
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new FastForward(implementor, state, config);
+        }
+    };
+
+    private static final long TICKS_PER_DAY = 24000;
 
     private final double min;
     private final double max;
@@ -27,10 +46,13 @@ public final class FastForward extends Supplement implements Runnable {
     private final long speed;
 
     private double percent = 0D;
-    private double ticks = 0D;
-    private double carry = 0D;
+    private double rate = 0D; // world ticks added each server tick
+    private double pending = 0D; // advance accumulated since last time change
+    private long countdown = 0; // ticks until next time change
 
-    private int taskId = -1;
+    private final Clock.Task task = new Clock.Task(this);
+    private final Clock.Task recalculation = new Clock.Task(new Recalculation());
+    private boolean dirty = false;
     private boolean notify = false;
 
     public FastForward(final Plugin implementor, final State state, final ConfigurationSection config) {
@@ -38,13 +60,20 @@ public final class FastForward extends Supplement implements Runnable {
         this.min = config.getInt("min") / 100D;
         this.max = config.getInt("max") / 100D;
         this.scale = config.getBoolean("scale");
-        this.speed = config.getLong("speed");
+        this.speed = Math.max(1, config.getLong("speed"));
 
         this.logConfig(MessageFormat.format("Fast-Forward min: {0,number,#.##%}; max: {1,number,#.##%}; scale: {2}; speed: {3} ticks", this.min, this.max, this.scale, this.speed));
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepNotify(final SleepNotify notify) {
+    @Override
+    protected void onUnload() {
+        this.task.cancel();
+        this.recalculation.cancel();
+    }
+
+    @Override
+    public void onSleepNotify(final SleepNotify notify) {
+        if (this.dirty) this.update(false);
         final int needed = (int) Math.ceil(this.max * notify.getPossible());
         if (needed < notify.getNeeded()) notify.setNeeded(needed);
         if (!this.notify) return;
@@ -52,23 +81,35 @@ public final class FastForward extends Supplement implements Runnable {
         final int start = (int) Math.ceil(notify.getPossible() * this.min);
         final int force = (int) Math.ceil(notify.getPossible() * this.max);
         if (force < notify.getNeeded()) notify.setNeeded(force);
-        this.state.courier.announce(this.state.world, "fast-forward.notify", this.percent, notify.getNeeded(), notify.getSleeping(), notify.getPossible(), start);
+        this.state.getCourier().announce(this.state.world, "fast-forward.notify", this.percent, notify.getNeeded(), notify.getSleeping(), notify.getPossible(), start
+                , this.untilDawn(), this.state.getDawnEta());
         this.notify = false;
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepStatus(final SleepStatus status) {
-        if (!status.getWorld().equals(this.state.world)) return;
-
+    @Override
+    public void onSleepStatus(final SleepStatus status) {
+        if (this.dirty) this.update(false);
         final int start = (int) Math.ceil(status.getPossible() * this.min);
         final int force = (int) Math.ceil(status.getPossible() * this.max);
         if (force < status.getNeeded()) status.setNeeded(force);
-        this.state.courier.send(status.getRequestor(), "fast-forward.status", this.percent, status.getNeeded(), status.getSleeping(), status.getPossible(), start);
+        this.state.getCourier().send(status.getRequestor(), "fast-forward.status", this.percent, status.getNeeded(), status.getSleeping(), status.getPossible(), start
+                , this.untilDawn(), this.state.getDawnEta());
     }
 
-    private void update() {
+    /** recalculate rate once for all changes in this tick */
+    private void invalidate() {
+        if (this.dirty) return;
+        this.dirty = true;
+        Main.clock.schedule(this.recalculation, 1);
+    }
+
+    /** @param force true to force sleep when at max; false to defer forcing to the next recalculation */
+    private void update(final boolean force) {
+        this.dirty = false;
+        this.recalculation.cancel();
+
         final double sleeping = this.state.sleeping.size();
-        final double possible = this.state.possible().size();
+        final double possible = this.state.possibleCount();
         this.percent = sleeping / possible ;
         if (Double.isNaN(this.percent)) this.percent = 0D;
         this.implementor.getLogger().log(CustomLevel.DEBUG, "[{0}] Fast-Forward percent: {1,number,#.##%} = {2,number,#} in bed / {3,number,#} possible"
@@ -81,76 +122,120 @@ public final class FastForward extends Supplement implements Runnable {
 
         if (this.percent >= this.max) {
             this.stop();
-            if (this.state.needed() > 0) this.state.force(null);
+            if (this.state.needed() == 0) return;
+            if (force) {
+                this.state.force(null);
+            } else {
+                this.invalidate(); // avoid forcing while a notification or status is processed
+            }
             return;
         }
 
         if (this.scale) this.percent = (this.percent - this.min) / (this.max - this.min);
-        final double ticksNow = this.speed * this.percent / (1 - this.percent); // ticks * (percent / percent allotted to apply)
-        if (ticksNow == this.ticks) return;
+        final double rate = this.percent / (1 - this.percent); // percent / percent allotted to apply
+        if (rate == this.rate) return;
 
         this.notify = true;
-        this.implementor.getLogger().log(CustomLevel.DEBUG, "[{0}] Fast-Forward scaled: {1,number,#.##%}; ticks: {2,number,#.##} (Previously: {3,number,#.##})"
-                , new Object[] { this.state.world.getName(), this.percent, ticksNow, this.ticks });
+        this.implementor.getLogger().log(CustomLevel.DEBUG, "[{0}] Fast-Forward scaled: {1,number,#.##%}; rate: {2,number,#.##} ticks per tick (Previously: {3,number,#.##})"
+                , new Object[] { this.state.world.getName(), this.percent, rate, this.rate });
 
-        if (ticksNow == 0) {
+        if (rate == 0) {
             this.stop();
             return;
         }
 
-        Bukkit.getScheduler().cancelTask(this.taskId);
-        this.ticks = ticksNow;
-        this.carry = 0;
-        this.taskId = Bukkit.getScheduler().runTaskTimer(this.implementor, this, 0, this.speed).getTaskId();
+        // running driver picks up new rate on its next tick
+        this.rate = rate;
+        this.predict();
+        if (this.task.isScheduled()) return;
+        this.countdown = this.speed;
+        Main.clock.repeat(this.state.world, this.task, 1, 1);
     }
 
     private void stop() {
-        Bukkit.getScheduler().cancelTask(this.taskId);
+        this.task.cancel();
         this.percent = 0D;
-        this.carry = 0D;
-        this.ticks = 0D;
+        this.rate = 0D;
+        this.pending = 0D;
+        if (this.state.getDawnEta() != 0) this.state.predictDawn(-1);
+    }
+
+    /** publish server ticks until dawn at the current rate, in addition to time passing normally */
+    private void predict() {
+        final long remaining = (State.SLEEP_SUCCESS_TICKS - this.state.world.getTime() + FastForward.TICKS_PER_DAY) % FastForward.TICKS_PER_DAY;
+        final long ticks = (long) Math.ceil((remaining - this.pending) / (1 + this.rate));
+        this.state.predictDawn(Math.max(0, ticks));
+        this.implementor.getLogger().log(CustomLevel.DEBUG, "[{0}] Fast-Forward dawn in {1} ticks ({2,number,#} world ticks remaining)"
+                , new Object[] { this.state.world.getName(), ticks, remaining });
     }
 
+    /** @return seconds remaining until predicted dawn; 0 when not predicted */
+    private long untilDawn() {
+        final long eta = this.state.getDawnEta();
+        if (eta == 0) return 0;
+        return Math.max(0, (long) Math.ceil((eta - System.currentTimeMillis()) / 1000D));
+    }
+
+    /** accumulate advance each tick and apply whole ticks once per speed ticks */
     @Override
     public void run() {
-        this.carry += this.ticks % 1;
+        this.pending += this.rate;
+        if (--this.countdown > 0) return;
+        this.countdown = this.speed;
+
+        final long advance = (long) this.pending;
+        if (advance == 0) return;
+        this.pending -= advance;
+
         final long from = this.state.world.getTime();
-        final long to = from + (long) this.ticks + (long) this.carry;
+        final long to = from + advance;
         this.state.world.setTime(to);
-        this.carry = this.carry % 1;
-        this.implementor.getLogger().log(CustomLevel.TRACE, "[{0}] Fast-Forward from: {1} to: {2} (carry: {3,number,#.##})"
-                , new Object[] { this.state.world.getName(), from, to, this.carry });
+        this.implementor.getLogger().log(CustomLevel.TRACE, "[{0}] Fast-Forward from: {1} to: {2} (pending: {3,number,#.##})"
+                , new Object[] { this.state.world.getName(), from, to, this.pending });
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepIgnoredChange(final SleepIgnoredChanged changed) {
-        if (!changed.getPlayer().getWorld().equals(this.state.world)) return;
+    @Override
+    public void onSleepIgnoredChanged(final SleepIgnoredChanged changed) {
         if (changed.getReason() == Reason.FORCE) return;
-        this.update();
+        this.invalidate();
     }
 
-    @EventHandler
-    private void onSleepAdd(final SleepAdd add) {
-        if (add.getState() != this.state) return;
-        this.update();
+    @Override
+    public void onSleepBulkIgnoredChanged(final SleepBulkIgnoredChanged changed) {
+        if (changed.getReason() == Reason.FORCE) return;
+        this.invalidate();
     }
 
-    @EventHandler
-    private void onSleepRemove(final SleepRemove remove) {
-        if (remove.getState() != this.state) return;
-        this.update();
+    @Override
+    public void onSleepAdd(final SleepAdd add) {
+        this.invalidate();
     }
 
-    @EventHandler
-    private void onSleepEnter(final SleepEnter enter) {
-        if (enter.getState() != this.state) return;
-        this.update();
+    @Override
+    public void onSleepRemove(final SleepRemove remove) {
+        this.invalidate();
     }
 
-    @EventHandler
-    private void onSleepLeave(final SleepLeave leave) {
-        if (leave.getState() != this.state) return;
-        this.update();
+    @Override
+    public void onSleepEnter(final SleepEnter enter) {
+        this.invalidate();
+    }
+
+    @Override
+    public void onSleepLeave(final SleepLeave leave) {
+        this.invalidate();
+    }
+
+
+
+
+    private final class Recalculation implements Runnable {
+
+        @Override
+        public void run() {
+            if (FastForward.this.dirty) FastForward.this.update(true);
+        }
+
     }
 
 }
@@ -1,16 +1,18 @@
 package edgruberman.bukkit.sleep.supplements;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerBedEnterEvent;
 import org.bukkit.event.player.PlayerBedLeaveEvent;
 import org.bukkit.plugin.Plugin;
 
+import edgruberman.bukkit.sleep.Clock;
+import edgruberman.bukkit.sleep.Main;
 import edgruberman.bukkit.sleep.Supplement;
 import edgruberman.bukkit.sleep.Reason;
 import edgruberman.bukkit.sleep.State;
@@ -19,13 +21,21 @@ import edgruberman.bukkit.sleep.events.SleepNotify;
 import edgruberman.bukkit.sleep.events.SleepStatus;
 
 /** prevents deep sleep from occurring which would cause Minecraft to change the time to morning */
-public final class Insomnia extends Supplement {
+public final class Insomnia extends Supplement implements Supplement.BedEnterHandler, Supplement.BedLeaveHandler, Supplement.NotifyHandler, Supplement.StatusHandler {
+
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new Insomnia(implementor, state, config);
+        }
+    };
 
     // TODO research if -10 is unnecessary to compensate for any background processing before task starts counting
     /** ticks in bed at which Minecraft declares deep sleep which causes morning  */
     private static final long BEFORE_DEEP_SLEEP_TICKS = 100 - 10;
 
     private final CraftBukkit cb;
+    private final Map<String, DelayedLoudNoise> noises = new HashMap<String, DelayedLoudNoise>();
 
     public Insomnia(final Plugin implementor, final State state, final ConfigurationSection config) {
         super(implementor, state, config);
@@ -37,47 +47,51 @@ public final class Insomnia extends Supplement {
         }
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onPlayerBedEnter(final PlayerBedEnterEvent event) {
-        if (!event.getPlayer().getWorld().equals(this.state.world)) return;
-        new DelayedLoudNoise(event.getPlayer());
+    @Override
+    protected void onUnload() {
+        for (final DelayedLoudNoise noise : this.noises.values()) noise.task.cancel();
+        this.noises.clear();
+    }
+
+    @Override
+    public void onPlayerBedEnter(final PlayerBedEnterEvent event) {
+        final DelayedLoudNoise existing = this.noises.put(event.getPlayer().getName(), new DelayedLoudNoise(event.getPlayer()));
+        if (existing != null) existing.task.cancel();
+    }
+
+    @Override
+    public void onPlayerBedLeave(final PlayerBedLeaveEvent leave) {
+        final DelayedLoudNoise noise = this.noises.remove(leave.getPlayer().getName());
+        if (noise != null) noise.task.cancel();
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepNotify(final SleepNotify notify) {
-        if (!notify.getWorld().equals(this.state.world)) return;
+    @Override
+    public void onSleepNotify(final SleepNotify notify) {
         if (notify.getReason() != Reason.ENTER && notify.getReason() != Reason.LEAVE) return;
         notify.setCancelled(true);
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepStatus(final SleepStatus request) {
-        if (!request.getWorld().equals(this.state.world)) return;
+    @Override
+    public void onSleepStatus(final SleepStatus request) {
         request.setCancelled(true);
-        this.state.courier.send(request.getRequestor(), "insomnia.status", this.state.world.getName());
+        this.state.getCourier().send(request.getRequestor(), "insomnia.status", this.state.world.getName());
     }
 
 
 
-    private final class DelayedLoudNoise implements Runnable, Listener {
+    private final class DelayedLoudNoise implements Runnable {
 
         private final Player player;
-        private final int taskId;
+        private final Clock.Task task = new Clock.Task(this);
 
         private DelayedLoudNoise(final Player player) {
             this.player = player;
-
-            this.taskId = Bukkit.getScheduler().runTaskLater(Insomnia.this.implementor, this, Insomnia.BEFORE_DEEP_SLEEP_TICKS).getTaskId();
-            if (this.taskId == -1) {
-                Insomnia.this.implementor.getLogger().log(Level.WARNING, "Failed to schedule insomnia task for {0}", this.player.getName());
-                return;
-            }
-
-            Bukkit.getPluginManager().registerEvents(this, Insomnia.this.implementor);
+            Main.clock.schedule(this.task, Insomnia.BEFORE_DEEP_SLEEP_TICKS);
         }
 
         @Override
         public void run() {
+            Insomnia.this.noises.remove(this.player.getName());
             if (!this.player.isSleeping()) {
                 Insomnia.this.implementor.getLogger().log(Level.FINEST, "Insomnia cancelled for {0}; No longer in bed", this.player.getName());
                 return;
@@ -87,13 +101,7 @@ public final class Insomnia extends Supplement {
 
             // eject player from bed before sleep can complete, but set player's spawn point
             Insomnia.this.cb.wakeUpPlayer(this.player);
-            Insomnia.this.state.courier.send(this.player, "insomnia.eject");
-        }
-
-        @EventHandler
-        private void onPlayerBedLeave(final PlayerBedLeaveEvent leave) {
-            if (!leave.getPlayer().equals(this.player)) return;
-            Bukkit.getScheduler().cancelTask(this.taskId);
+            Insomnia.this.state.getCourier().send(this.player, "insomnia.eject");
         }
 
     }
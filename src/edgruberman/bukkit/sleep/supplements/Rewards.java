@@ -1,5 +1,6 @@
 package edgruberman.bukkit.sleep.supplements;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -11,38 +12,72 @@ import java.util.logging.Level;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
 import org.bukkit.event.player.PlayerBedLeaveEvent;
 import org.bukkit.plugin.Plugin;
 
 import edgruberman.bukkit.sleep.State;
 import edgruberman.bukkit.sleep.Supplement;
 
-public final class Rewards extends Supplement {
+public final class Rewards extends Supplement implements Supplement.BedLeaveHandler {
+
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new Rewards(implementor, state, config);
+        }
+    };
 
     private static final Map<String, RewardRegistration> registered = new HashMap<String, RewardRegistration>();
 
-    public static void register(final Plugin implementor, final Class<? extends Reward> reward, final String type) {
-        Rewards.registered.put(type, new RewardRegistration(implementor, reward));
+    public static void register(final Plugin implementor, final Reward.Factory factory, final String type) {
+        if (factory == null) throw new IllegalArgumentException("Reward factory required for type: " + type);
+        Rewards.registered.put(type, new RewardRegistration(implementor, factory));
     }
 
-    private static Reward create(final String type, final ConfigurationSection definition)
-            throws IllegalArgumentException, SecurityException, InstantiationException
-            , IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+    /** compatibility for rewards without a factory; constructor is resolved once here instead of for each definition */
+    public static void register(final Plugin implementor, final Class<? extends Reward> reward, final String type) {
+        Rewards.register(implementor, new ReflectiveFactory(reward), type);
+    }
 
+    private static Reward create(final String type, final ConfigurationSection definition) {
         final RewardRegistration reg = Rewards.registered.get(type);
         if (reg == null) throw new IllegalArgumentException("Reward type not registered: " + type);
-        return reg.reward.getConstructor(Plugin.class, ConfigurationSection.class).newInstance(reg.implementor, definition);
+        return reg.factory.create(reg.implementor, definition);
     }
 
     private final static class RewardRegistration {
 
         private final Plugin implementor;
-        private final Class<? extends Reward> reward;
+        private final Reward.Factory factory;
 
-        private RewardRegistration(final Plugin implementor, final Class<? extends Reward> reward) {
+        private RewardRegistration(final Plugin implementor, final Reward.Factory factory) {
             this.implementor = implementor;
-            this.reward = reward;
+            this.factory = factory;
+        }
+
+    }
+
+    private final static class ReflectiveFactory implements Reward.Factory {
+
+        private final Constructor<? extends Reward> constructor;
+
+        private ReflectiveFactory(final Class<? extends Reward> reward) {
+            try {
+                this.constructor = reward.getConstructor(Plugin.class, ConfigurationSection.class);
+            } catch (final NoSuchMethodException e) {
+                throw new IllegalArgumentException("Reward class missing (Plugin, ConfigurationSection) constructor: " + reward.getName(), e);
+            }
+        }
+
+        @Override
+        public Reward create(final Plugin implementor, final ConfigurationSection definition) {
+            try {
+                return this.constructor.newInstance(implementor, definition);
+            } catch (final InvocationTargetException e) {
+                throw new IllegalStateException("Unable to create " + this.constructor.getDeclaringClass().getSimpleName() + " reward; " + e.getCause(), e.getCause());
+            } catch (final Exception e) {
+                throw new IllegalStateException("Unable to create " + this.constructor.getDeclaringClass().getSimpleName() + " reward; " + e, e);
+            }
         }
 
     }
@@ -81,10 +116,9 @@ public final class Rewards extends Supplement {
         // TODO remove all registrations?
     }
 
-    @EventHandler
-    private void onPlayerBedLeave(final PlayerBedLeaveEvent leave) {
+    @Override
+    public void onPlayerBedLeave(final PlayerBedLeaveEvent leave) {
         if (this.state.world.getTime() != State.SLEEP_SUCCESS_TICKS) return;
-        if (!leave.getPlayer().getWorld().equals(this.state.world)) return;
 
         if (this.participants == null) this.participants = this.state.sleeping.size() + 1;
 
@@ -98,6 +132,9 @@ public final class Rewards extends Supplement {
 
     public static abstract class Reward {
 
+        /** creates rewards without reflection */
+        public interface Factory { Reward create(Plugin implementor, ConfigurationSection definition); }
+
         protected final Plugin implementor;
         protected final String name;
         protected final float factor;
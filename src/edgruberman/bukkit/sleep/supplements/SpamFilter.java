@@ -9,17 +9,22 @@ import java.util.UUID;
 import java.util.logging.Level;
 
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.player.PlayerChangedWorldEvent;
-import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.Plugin;
 
 import edgruberman.bukkit.sleep.Reason;
 import edgruberman.bukkit.sleep.State;
 import edgruberman.bukkit.sleep.Supplement;
 import edgruberman.bukkit.sleep.events.SleepNotify;
+import edgruberman.bukkit.sleep.events.SleepRemove;
 
-public final class SpamFilter extends Supplement {
+public final class SpamFilter extends Supplement implements Supplement.NotifyHandler, Supplement.RemoveHandler {
+
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new SpamFilter(implementor, state, config);
+        }
+    };
 
     private final long cooldown;
     private final List<String> reasons = new ArrayList<String>();
@@ -33,9 +38,8 @@ public final class SpamFilter extends Supplement {
         this.logConfig(MessageFormat.format("Spam Filter cooldown: {0} seconds (Reasons: {1})", this.cooldown / 1000, this.reasons));
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepNotify(final SleepNotify notify) {
-        if (!notify.getWorld().equals(this.state.world)) return;
+    @Override
+    public void onSleepNotify(final SleepNotify notify) {
         if (!this.reasons.contains(notify.getReason().getName())) return;
 
         if (!this.lasts.containsKey(notify.getPlayer().getUniqueId())) this.lasts.put(notify.getPlayer().getUniqueId(), new HashMap<Reason, Long>());
@@ -53,15 +57,9 @@ public final class SpamFilter extends Supplement {
                 , new Object[] { notify.getReason().getKey(), notify.getPlayer().getName(), (last - now / 1000)});
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onPlayerLeaveWorld(final PlayerChangedWorldEvent changed) {
-        if (!changed.getFrom().equals(this.state.world)) return;
-        this.lasts.remove(changed.getPlayer().getUniqueId());
-    }
-
-    @EventHandler
-    private void onPlayerLeaveServer(final PlayerQuitEvent quit) {
-        this.lasts.remove(quit.getPlayer().getUniqueId());
+    @Override // player left world or server
+    public void onSleepRemove(final SleepRemove remove) {
+        this.lasts.remove(remove.getPlayer().getUniqueId());
     }
 
     @Override
@@ -18,8 +18,8 @@ import org.bukkit.event.player.PlayerBedEnterEvent;
 import org.bukkit.event.player.PlayerBedLeaveEvent;
 import org.bukkit.material.Bed;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitTask;
 
+import edgruberman.bukkit.sleep.Clock;
 import edgruberman.bukkit.sleep.Main;
 import edgruberman.bukkit.sleep.State;
 import edgruberman.bukkit.sleep.Supplement;
@@ -27,7 +27,14 @@ import edgruberman.bukkit.sleep.craftbukkit.CraftBukkit;
 import edgruberman.bukkit.sleep.util.CustomLevel;
 
 /** temporary bed manager */
-public final class Temporary extends Supplement {
+public final class Temporary extends Supplement implements Supplement.BedEnterHandler {
+
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new Temporary(implementor, state, config);
+        }
+    };
 
     private final long duration;
     private final CraftBukkit cb;
@@ -57,10 +64,8 @@ public final class Temporary extends Supplement {
         this.previous.clear();
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    private void onPlayerBedEnter(final PlayerBedEnterEvent event) {
-        if (!event.getPlayer().getWorld().equals(this.state.world)) return;
-
+    @Override
+    public void onPlayerBedEnter(final PlayerBedEnterEvent event) {
         final Location previous = this.cb.getBedLocation(event.getPlayer());
         if (previous == null) return; // ignore if no previous bed spawn exists
         if (previous.equals(event.getBed().getLocation())) return; // ignore when bed is same as current spawn
@@ -69,7 +74,7 @@ public final class Temporary extends Supplement {
         this.previous.put(event.getPlayer().getName(), new CapturedLocation(previous));
     }
 
-    @EventHandler(priority = EventPriority.MONITOR)
+    @EventHandler(priority = EventPriority.MONITOR) // after state update so instruction follows leave notification
     private void onPlayerBedLeave(final PlayerBedLeaveEvent event) {
         if (!event.getPlayer().getWorld().equals(this.state.world)) return;
 
@@ -86,7 +91,7 @@ public final class Temporary extends Supplement {
         this.implementor.getLogger().log(CustomLevel.TRACE, "Temporary bed used by {0} at {2}; Previous: {1}"
                 , new Object[]{ event.getPlayer().getName(), previous, event.getBed() });
 
-        this.state.courier.send(event.getPlayer(), "temporary.instruction", Temporary.readableDuration(this.duration / 20 * 1000)
+        this.state.getCourier().send(event.getPlayer(), "temporary.instruction", Temporary.readableDuration(this.duration / 20 * 1000)
                 , previous.getWorldName(), previous.getBlockX(), previous.getBlockY(), previous.getBlockZ()
                 , event.getBed().getWorld().getName(), event.getBed().getX(), event.getBed().getY(), event.getBed().getZ()
                 , ( previous.getWorldName() == null ? 1 : 0 ));
@@ -120,7 +125,7 @@ public final class Temporary extends Supplement {
         this.implementor.getLogger().log(CustomLevel.TRACE, "Temporary bed reverted by {0} to {1}; Temporary: {2}"
                 , new Object[]{broken.getPlayer().getName(), previous, head});
 
-        this.state.courier.send(broken.getPlayer(), "temporary.reverted"
+        this.state.getCourier().send(broken.getPlayer(), "temporary.reverted"
                 , previous.getWorldName(), previous.getBlockX(), previous.getBlockY(), previous.getBlockZ()
                 , head.getWorld().getName(), head.getX(), head.getY(), head.getZ()
                 , ( previous.getWorldName() == null ? 1 : 0 ));
@@ -131,7 +136,7 @@ public final class Temporary extends Supplement {
     private final class SpawnCommitter implements Runnable {
 
         private final String player;
-        private final BukkitTask task;
+        private final Clock.Task task = new Clock.Task(this);
         private final CapturedLocation previous;
 
         private SpawnCommitter(final Player player, final CapturedLocation previous) {
@@ -142,7 +147,7 @@ public final class Temporary extends Supplement {
             if (existing != null) existing.cancel();
 
             Temporary.this.committers.put(player.getName(), this);
-            this.task = Bukkit.getScheduler().runTaskLater(Temporary.this.implementor, this, Temporary.this.duration);
+            Main.clock.schedule(this.task, Temporary.this.duration);
         }
 
         @Override
@@ -157,7 +162,7 @@ public final class Temporary extends Supplement {
             if (target == null) return;
 
             final CapturedLocation current = new CapturedLocation(Temporary.this.cb.getBedLocation(target));
-            Temporary.this.state.courier.send(target, "temporary.committed"
+            Temporary.this.state.getCourier().send(target, "temporary.committed"
                     , this.previous.getWorldName(), this.previous.getBlockX(), this.previous.getBlockY(), this.previous.getBlockZ()
                     , current.getWorldName(), current.getBlockX(), current.getBlockY(), current.getBlockZ()
                     , ( this.previous.getWorldName() == null ? 1 : 0 ));
@@ -1,117 +1,609 @@
 package edgruberman.bukkit.sleep.supplements;
 
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
-import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerBedEnterEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
 import org.bukkit.plugin.Plugin;
 
+import edgruberman.bukkit.playeractivity.PlayerMoveBlockEvent;
+import edgruberman.bukkit.sleep.Clock;
 import edgruberman.bukkit.sleep.Main;
 import edgruberman.bukkit.sleep.Reason;
 import edgruberman.bukkit.sleep.State;
 import edgruberman.bukkit.sleep.Supplement;
+import edgruberman.bukkit.sleep.events.SleepAdd;
+import edgruberman.bukkit.sleep.events.SleepBulkIgnore;
 import edgruberman.bukkit.sleep.events.SleepComply;
+import edgruberman.bukkit.sleep.events.SleepLeave;
 import edgruberman.bukkit.sleep.events.SleepNotify;
+import edgruberman.bukkit.sleep.events.SleepRemove;
+import edgruberman.bukkit.sleep.util.ProfiledExecutor;
 
-public final class Underground extends Supplement implements Runnable {
+/**
+ * ignores sleep for players below a depth while someone is in bed; after the
+ * initial scan, depth is only checked for movement that crosses it. full
+ * scans are spread across ticks in slices, each limited to a time budget.
+ * below is a fixed y value, a distance under the highest block of the column,
+ * or a sky light level; heights and light are cached per chunk only while
+ * active, and are dropped where blocks change
+ */
+public final class Underground extends Supplement implements Runnable
+        , Supplement.BedEnterHandler, Supplement.ComplyHandler, Supplement.BulkComplyHandler, Supplement.NotifyHandler
+        , Supplement.AddHandler, Supplement.RemoveHandler, Supplement.LeaveHandler
+        , Supplement.MoveBlockHandler, Supplement.TeleportHandler {
+
+    public static final Supplement.Factory FACTORY = new Supplement.Factory() {
+        @Override
+        public Supplement create(final Plugin implementor, final State state, final ConfigurationSection config) {
+            return new Underground(implementor, state, config);
+        }
+    };
 
     public static final Reason ABOVE = new Reason("ABOVE", "underground.above");
     public static final Reason BELOW = new Reason("BELOW", "underground.below");
     public static final Reason NO_SLEEPERS = new Reason("NO_SLEEPERS", "underground.no-sleepers");
 
-    private final static long PERIOD = 1 * Main.TICKS_PER_SECOND;
-
+    private final Mode mode;
     private final int depth;
+    private final int margin;
+    private final int light;
+    private final Surface surface;
+    private final SkyLight sky;
+    private final Cache cache;
     private final long delay;
+    private final long reconcile;
+    private final long sweep;
+    private final long budget;
 
-    private int taskId = -1;
-    private boolean initial = true;
+    private final Clock.Task activation = new Clock.Task(this);
+    private final Sweep sweeper = new Sweep();
+    private final Clock.Task sweeping = new Clock.Task(this.sweeper);
+    private final Clock.Task reconciliation = new Clock.Task(new Reconciliation());
+    private final Clock.Task deactivation = new Clock.Task(new Deactivation());
+    private final Set<UUID> below = new HashSet<UUID>();
+    private boolean quiet = false;
     private boolean active = false;
 
     public Underground(final Plugin implementor, final State state, final ConfigurationSection config) {
         super(implementor, state, config);
+        this.mode = Mode.parse(config.getString("mode"), implementor, state.world);
         this.depth = config.getInt("depth");
+        this.margin = config.getInt("margin");
+        this.light = config.getInt("light");
+        this.surface = ( this.mode == Mode.SURFACE ? new Surface(state.world) : null );
+        this.sky = ( this.mode == Mode.LIGHT ? new SkyLight(state.world) : null );
+        this.cache = ( this.surface != null ? this.surface : this.sky );
         this.delay = config.getLong("delay") * Main.TICKS_PER_SECOND;
+        this.reconcile = config.getLong("reconcile") * Main.TICKS_PER_SECOND;
+        this.sweep = Math.max(1, config.getLong("sweep") * Main.TICKS_PER_SECOND);
+        this.budget = TimeUnit.MILLISECONDS.toNanos(config.getLong("budget"));
 
-        this.logConfig(MessageFormat.format("Underground depth: {0}; Underground delay: {1}", this.depth, this.delay));
+        final String below = ( this.mode == Mode.DEPTH ? "y <= " + this.depth : this.mode == Mode.SURFACE ? this.margin + " under surface" : "sky light <= " + this.light );
+        this.logConfig(MessageFormat.format("Underground when {0}; Underground delay: {1}; Reconcile: {2}; Sweep: {3} ticks ({4}ms per tick)"
+                , below, this.delay, this.reconcile, this.sweep, config.getLong("budget")));
     }
 
     @Override
     protected void onUnload() {
-        Bukkit.getScheduler().cancelTask(this.taskId);
+        this.activation.cancel();
+        this.sweeping.cancel();
+        this.reconciliation.cancel();
+        this.deactivation.cancel();
+        this.release();
+    }
+
+    private boolean isBelow(final Location location) {
+        switch (this.mode) {
+        case SURFACE:
+            return location.getBlockY() <= this.surface.highest(location.getBlockX(), location.getBlockZ()) - this.margin;
+        case LIGHT:
+            return this.sky.level(location.getBlockX(), location.getBlockY(), location.getBlockZ()) <= this.light;
+        default:
+            return location.getBlockY() <= this.depth;
+        }
     }
 
-    private boolean isBelow(final Player player) {
-        return player.getLocation().getBlockY() <= this.depth;
+    /** @return true if movement changes whether player is below */
+    private boolean crossed(final Player player, final Location from, final Location to, final boolean below) {
+        if (this.mode == Mode.DEPTH) return this.isBelow(from) != below; // fixed boundary needs no lookup
+        return this.below.contains(player.getUniqueId()) != below;
     }
 
-    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true) // process before state update to prevent leave notification
-    private void onPlayerBedEnter(final PlayerBedEnterEvent event) {
-        if (this.taskId != -1) return;
-        if (!event.getPlayer().getWorld().equals(this.state.world)) return;
-        this.initial = true;
-        this.taskId = Bukkit.getScheduler().runTaskTimer(this.implementor, this, this.delay, Underground.PERIOD).getTaskId();
+    @Override // processed before state update to prevent leave notification
+    public void onPlayerBedEnter(final PlayerBedEnterEvent event) {
+        this.deactivation.cancel();
+        if (this.active || this.activation.isScheduled()) return;
+        Main.clock.schedule(this.activation, this.delay);
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepComply(final SleepComply comply) {
+    @Override
+    public void onSleepComply(final SleepComply comply) {
         if (!this.active) return;
-        if (!this.isBelow(comply.getPlayer())) return;
-        if (!comply.getPlayer().getWorld().equals(this.state.world)) return;
+        if (!this.below.contains(comply.getPlayer().getUniqueId())) return;
         this.implementor.getLogger().log(Level.FINEST, "[{0}] Cancelling {1} changing to not ignore sleep (underground)"
                 , new Object[] { this.state.world.getName(), comply.getPlayer().getName()});
         comply.setCancelled(true);
     }
 
-    @EventHandler(ignoreCancelled = true)
-    private void onSleepNotify(final SleepNotify notify) {
-        if (!notify.getWorld().equals(this.state.world)) return;
-        if (!(this.initial && this.active)) return;
+    @Override
+    public void onSleepBulkComply(final SleepBulkIgnore bulk) {
+        if (!this.active) return;
+        for (final Player player : bulk.getPlayers())
+            if (this.below.contains(player.getUniqueId()))
+                bulk.setCancelled(player, true);
+    }
+
+    @Override
+    public void onSleepNotify(final SleepNotify notify) {
+        if (!this.quiet) return;
         notify.setCancelled(true);
     }
 
+    @Override
+    public void onSleepAdd(final SleepAdd add) {
+        if (!this.active) return;
+        this.update(add.getPlayer(), this.isBelow(add.getPlayer().getLocation()));
+    }
+
+    @Override
+    public void onSleepRemove(final SleepRemove remove) {
+        this.below.remove(remove.getPlayer().getUniqueId());
+        this.checkSleepers();
+    }
+
+    @Override
+    public void onSleepLeave(final SleepLeave leave) {
+        // moves while in bed were recorded but not applied
+        if (this.active) this.update(leave.getPlayer(), this.below.contains(leave.getPlayer().getUniqueId()));
+        this.checkSleepers();
+    }
+
+    @Override
+    public void onPlayerMoveBlock(final PlayerMoveBlockEvent move) {
+        if (!this.active) return;
+        final boolean below = this.isBelow(move.getTo());
+        if (!this.crossed(move.getPlayer(), move.getFrom(), move.getTo(), below)) return;
+        this.update(move.getPlayer(), below);
+    }
+
+    @Override
+    public void onPlayerTeleport(final PlayerTeleportEvent teleport) {
+        if (!this.active) return;
+        final boolean below = this.isBelow(teleport.getTo());
+        if (!this.crossed(teleport.getPlayer(), teleport.getFrom(), teleport.getTo(), below)) return;
+        this.update(teleport.getPlayer(), below);
+    }
+
+    /** delay after first bed entry has passed */
     @Override
     public void run() {
-        if (this.initial) this.active = true;
-        boolean sleepers = false;
-        int below = 0;
-        for (final Player player : this.state.players) {
-            if (player.isSleeping()) { // in bed
-                sleepers = true;
-                continue;
-            }
+        if (this.state.sleeping.isEmpty()) return;
 
-            if (this.isBelow(player)) { // below
-                if (player.isSleepingIgnored()) continue;
-                Underground.this.state.ignore(player, true, Underground.BELOW);
-                below++;
+        this.active = true;
+        if (this.cache != null) ProfiledExecutor.registerEvents(this.cache, this.implementor, this.state.world, Underground.class);
+        this.sweeper.start(true);
+    }
 
-            } else { // at or above
-                if (!player.isSleepingIgnored()) continue;
-                this.active = false;
-                Underground.this.state.ignore(player, false, Underground.ABOVE);
-                this.active = true;
-            }
+    /** first full sweep completed */
+    private void initialized(final int below) {
+        if (below > 0)
+            this.state.getCourier().announce(this.state.world, "underground.initial", below, this.state.needed(), this.state.sleeping.size(), this.state.possibleCount());
+
+        if (this.reconcile > 0) Main.clock.repeat(this.state.world, this.reconciliation, this.reconcile, this.reconcile);
+    }
+
+    /** @return true if player changed to ignore sleep */
+    private boolean update(final Player player, final boolean below) {
+        if (below) {
+            this.below.add(player.getUniqueId());
+        } else {
+            this.below.remove(player.getUniqueId());
+        }
+
+        if (player.isSleeping()) return false; // in bed
+
+        if (below) {
+            if (player.isSleepingIgnored()) return false;
+            this.state.ignore(player, true, Underground.BELOW);
+            return true;
         }
-        if (this.initial && below > 0)
-            this.state.courier.announce(this.state.world, "underground.initial", below, this.state.needed(), this.state.sleeping.size(), this.state.possible().size());
 
-        this.initial = false;
-        if (!sleepers) this.disable();
+        // at or above
+        if (!player.isSleepingIgnored()) return false;
+        this.active = false;
+        this.state.ignore(player, false, Underground.ABOVE);
+        this.active = true;
+        return false;
+    }
+
+    /** deactivate on the next tick if no one remains in bed */
+    private void checkSleepers() {
+        if (!this.active || !this.state.sleeping.isEmpty()) return;
+        Main.clock.schedule(this.deactivation, 1);
+    }
+
+    /** stop listening for block changes and discard cached lookups */
+    private void release() {
+        if (this.cache == null) return;
+        HandlerList.unregisterAll(this.cache);
+        this.cache.clear();
     }
 
     private void disable() {
-        Bukkit.getScheduler().cancelTask(this.taskId);
+        this.activation.cancel();
+        this.sweeping.cancel();
+        this.reconciliation.cancel();
+        this.deactivation.cancel();
         this.active = false;
-        this.taskId = -1;
+        this.below.clear();
+        this.release();
+
+        this.state.ignore(this.state.players, false, Underground.NO_SLEEPERS);
+    }
+
+
+
+    /** round-robin scan of all players in slices over the sweep period, stopping each slice early when over budget */
+    private final class Sweep implements Runnable {
+
+        private Player[] players = new Player[0];
+        private int count = 0;
+        private int next = 0;
+        private int slice = 1;
+        private int below = 0;
+        private boolean initial = false;
+
+        private void start(final boolean initial) {
+            this.count = Underground.this.state.players.size();
+            this.players = Underground.this.state.players.toArray(this.players);
+            this.next = 0;
+            this.slice = (int) Math.max(1, (this.count + Underground.this.sweep - 1) / Underground.this.sweep);
+            this.below = 0;
+            this.initial = initial;
+            Main.clock.repeat(Underground.this.state.world, Underground.this.sweeping, 1, 1);
+        }
+
+        @Override
+        public void run() {
+            final long started = System.nanoTime();
+            Underground.this.quiet = this.initial;
+            try {
+                for (int processed = 0; this.next < this.count && processed < this.slice; processed++) {
+                    if (processed > 0 && System.nanoTime() - started >= Underground.this.budget) break;
+
+                    final Player player = this.players[this.next];
+                    this.players[this.next++] = null;
+                    if (!Underground.this.state.isTracked(player)) continue;
+                    if (Underground.this.update(player, Underground.this.isBelow(player.getLocation()))) this.below++;
+                }
+            } finally {
+                Underground.this.quiet = false;
+            }
+
+            if (this.next < this.count) return;
+
+            Underground.this.sweeping.cancel();
+            if (this.initial) Underground.this.initialized(this.below);
+        }
+
+    }
+
+
+
+    /** full scan to correct for movement not reported as block changes */
+    private final class Reconciliation implements Runnable {
+
+        @Override
+        public void run() {
+            if (Underground.this.sweeping.isScheduled()) return;
+            Underground.this.sweeper.start(false);
+        }
+
+    }
+
+
+
+    private final class Deactivation implements Runnable {
+
+        @Override
+        public void run() {
+            if (!Underground.this.state.sleeping.isEmpty()) return;
+            Underground.this.disable();
+        }
+
+    }
+
+
+
+
+    /** comparison used to determine if a player is below */
+    private enum Mode {
+
+        /** block y at or under a fixed depth */
+        DEPTH,
+
+        /** block y at or under a margin below the highest block in the column */
+        SURFACE,
+
+        /** sky light at or under a level */
+        LIGHT;
+
+        private static Mode parse(final String name, final Plugin implementor, final World world) {
+            if (name == null) return Mode.DEPTH;
+            try {
+                return Mode.valueOf(name.toUpperCase(Locale.ENGLISH));
+            } catch (final IllegalArgumentException e) {
+                implementor.getLogger().log(Level.WARNING, "[{0}] Unrecognized underground mode: {1}; Using DEPTH", new Object[] { world.getName(), name });
+                return Mode.DEPTH;
+            }
+        }
+
+    }
+
+
+
+    /** cached lookups for a world; listens for block changes and chunk unloads only while registered */
+    private static abstract class Cache implements Listener {
+
+        protected final World world;
+
+        protected Cache(final World world) {
+            this.world = world;
+        }
+
+        /** drop cached values a change to the block at these coordinates could affect */
+        protected abstract void invalidate(int x, int y, int z);
+
+        protected abstract void remove(int chunkX, int chunkZ);
+
+        protected abstract void clear();
+
+        private void changed(final Block block) {
+            if (!block.getWorld().equals(this.world)) return;
+            this.invalidate(block.getX(), block.getY(), block.getZ());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockPlace(final BlockPlaceEvent place) {
+            this.changed(place.getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockBreak(final BlockBreakEvent broken) {
+            this.changed(broken.getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onEntityExplode(final EntityExplodeEvent explode) {
+            for (final Block block : explode.blockList()) this.changed(block);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockPistonExtend(final BlockPistonExtendEvent extend) {
+            this.changed(extend.getBlock().getRelative(extend.getDirection()));
+            for (final Block block : extend.getBlocks()) {
+                this.changed(block);
+                this.changed(block.getRelative(extend.getDirection()));
+            }
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockPistonRetract(final BlockPistonRetractEvent retract) {
+            this.changed(retract.getBlock().getRelative(retract.getDirection()));
+            this.changed(retract.getRetractLocation().getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockFromTo(final BlockFromToEvent flow) {
+            this.changed(flow.getToBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockBurn(final BlockBurnEvent burn) {
+            this.changed(burn.getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockFade(final BlockFadeEvent fade) {
+            this.changed(fade.getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockForm(final BlockFormEvent form) {
+            this.changed(form.getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onLeavesDecay(final LeavesDecayEvent decay) {
+            this.changed(decay.getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onStructureGrow(final StructureGrowEvent grow) {
+            if (!grow.getWorld().equals(this.world)) return;
+            for (final BlockState block : grow.getBlocks()) this.invalidate(block.getX(), block.getY(), block.getZ());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onEntityChangeBlock(final EntityChangeBlockEvent change) {
+            this.changed(change.getBlock());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onChunkUnload(final ChunkUnloadEvent unload) {
+            if (!unload.getWorld().equals(this.world)) return;
+            this.remove(unload.getChunk().getX(), unload.getChunk().getZ());
+        }
+
+        protected static long key(final int chunkX, final int chunkZ) {
+            return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+        }
+
+    }
+
+
+
+    /** highest block y for each column, cached by chunk until a block in the column changes or the chunk unloads */
+    private static final class Surface extends Cache {
+
+        private static final int UNKNOWN = Integer.MIN_VALUE;
+
+        private final Map<Long, int[]> chunks = new HashMap<Long, int[]>();
+        private long lastKey = Long.MIN_VALUE;
+        private int[] lastHeights = null;
+
+        private Surface(final World world) {
+            super(world);
+        }
+
+        private int highest(final int x, final int z) {
+            final long key = Cache.key(x >> 4, z >> 4);
+            int[] heights = ( key == this.lastKey ? this.lastHeights : this.chunks.get(key) );
+            if (heights == null) {
+                heights = new int[256];
+                Arrays.fill(heights, Surface.UNKNOWN);
+                this.chunks.put(key, heights);
+            }
+            this.lastKey = key;
+            this.lastHeights = heights;
+
+            final int index = ((z & 15) << 4) | (x & 15);
+            if (heights[index] == Surface.UNKNOWN) heights[index] = this.world.getHighestBlockYAt(x, z);
+            return heights[index];
+        }
+
+        @Override
+        protected void invalidate(final int x, final int y, final int z) {
+            if (this.chunks.isEmpty()) return;
+            final long key = Cache.key(x >> 4, z >> 4);
+            final int[] heights = ( key == this.lastKey ? this.lastHeights : this.chunks.get(key) );
+            if (heights != null) heights[((z & 15) << 4) | (x & 15)] = Surface.UNKNOWN;
+        }
+
+        @Override
+        protected void remove(final int chunkX, final int chunkZ) {
+            final long key = Cache.key(chunkX, chunkZ);
+            this.chunks.remove(key);
+            if (key == this.lastKey) {
+                this.lastKey = Long.MIN_VALUE;
+                this.lastHeights = null;
+            }
+        }
+
+        @Override
+        protected void clear() {
+            this.chunks.clear();
+            this.lastKey = Long.MIN_VALUE;
+            this.lastHeights = null;
+        }
+
+    }
+
+
+
+    /**
+     * sky light for each block, cached by chunk section until a block within
+     * light range changes or the chunk unloads; sections are only allocated
+     * where a lookup occurs
+     */
+    private static final class SkyLight extends Cache {
+
+        private static final byte UNKNOWN = -1;
+        private static final int RANGE = 15; // farthest a block change can alter light
+
+        private final int height;
+        private final Map<Long, byte[][]> chunks = new HashMap<Long, byte[][]>();
+        private long lastKey = Long.MIN_VALUE;
+        private byte[][] lastSections = null;
+
+        private SkyLight(final World world) {
+            super(world);
+            this.height = world.getMaxHeight();
+        }
+
+        private int level(final int x, final int y, final int z) {
+            if (y < 0) return 0;
+            if (y >= this.height) return 15;
+
+            final long key = Cache.key(x >> 4, z >> 4);
+            byte[][] sections = ( key == this.lastKey ? this.lastSections : this.chunks.get(key) );
+            if (sections == null) {
+                sections = new byte[(this.height + 15) >> 4][];
+                this.chunks.put(key, sections);
+            }
+            this.lastKey = key;
+            this.lastSections = sections;
+
+            byte[] section = sections[y >> 4];
+            if (section == null) {
+                section = new byte[4096];
+                Arrays.fill(section, SkyLight.UNKNOWN);
+                sections[y >> 4] = section;
+            }
+
+            final int index = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+            if (section[index] == SkyLight.UNKNOWN) section[index] = this.world.getBlockAt(x, y, z).getLightFromSky();
+            return section[index];
+        }
+
+        @Override
+        protected void invalidate(final int x, final int y, final int z) {
+            if (this.chunks.isEmpty()) return;
+            for (int chunkX = (x - SkyLight.RANGE) >> 4; chunkX <= (x + SkyLight.RANGE) >> 4; chunkX++)
+                for (int chunkZ = (z - SkyLight.RANGE) >> 4; chunkZ <= (z + SkyLight.RANGE) >> 4; chunkZ++)
+                    this.remove(chunkX, chunkZ);
+        }
+
+        @Override
+        protected void remove(final int chunkX, final int chunkZ) {
+            final long key = Cache.key(chunkX, chunkZ);
+            this.chunks.remove(key);
+            if (key == this.lastKey) {
+                this.lastKey = Long.MIN_VALUE;
+                this.lastSections = null;
+            }
+        }
+
+        @Override
+        protected void clear() {
+            this.chunks.clear();
+            this.lastKey = Long.MIN_VALUE;
+            this.lastSections = null;
+        }
 
-        for (final Player player : this.state.players)
-            this.state.ignore(player, false, Underground.NO_SLEEPERS);
     }
 
 }
@@ -13,6 +13,13 @@ import edgruberman.bukkit.sleep.util.CustomLevel;
 
 public class ConsoleCommand extends Reward {
 
+    public static final Reward.Factory FACTORY = new Reward.Factory() {
+        @Override
+        public Reward create(final Plugin implementor, final ConfigurationSection definition) {
+            return new ConsoleCommand(implementor, definition);
+        }
+    };
+
     public final String format;
     public final int value;
 
@@ -13,6 +13,13 @@ import edgruberman.bukkit.sleep.util.CustomLevel;
 
 public class ExperienceOrb extends Reward {
 
+    public static final Reward.Factory FACTORY = new Reward.Factory() {
+        @Override
+        public Reward create(final Plugin implementor, final ConfigurationSection definition) {
+            return new ExperienceOrb(implementor, definition);
+        }
+    };
+
     public final int quantity;
     public final int experience;
 
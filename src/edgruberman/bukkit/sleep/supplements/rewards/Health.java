@@ -12,6 +12,13 @@ import edgruberman.bukkit.sleep.util.CustomLevel;
 
 public class Health extends Reward {
 
+    public static final Reward.Factory FACTORY = new Reward.Factory() {
+        @Override
+        public Reward create(final Plugin implementor, final ConfigurationSection definition) {
+            return new Health(implementor, definition);
+        }
+    };
+
     public final int health;
     public final float exhaustion;
 
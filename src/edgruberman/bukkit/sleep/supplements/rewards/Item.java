@@ -14,6 +14,13 @@ import edgruberman.bukkit.sleep.util.CustomLevel;
 
 public class Item extends Reward {
 
+    public static final Reward.Factory FACTORY = new Reward.Factory() {
+        @Override
+        public Reward create(final Plugin implementor, final ConfigurationSection definition) {
+            return new Item(implementor, definition);
+        }
+    };
+
     public final int quantity;
     public final Material material;
     public final short data;
@@ -13,6 +13,13 @@ import edgruberman.bukkit.sleep.util.CustomLevel;
 
 public class PotionEffect extends Reward {
 
+    public static final Reward.Factory FACTORY = new Reward.Factory() {
+        @Override
+        public Reward create(final Plugin implementor, final ConfigurationSection definition) {
+            return new PotionEffect(implementor, definition);
+        }
+    };
+
     private static final int TICKS_PER_SECOND = 20;
 
     public final PotionEffectType effect;
@@ -0,0 +1,100 @@
+package edgruberman.bukkit.sleep.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+/**
+ * parsed YAML file contents indexed by path, reused until the file modification time or size changes; safe for concurrent use.
+ * a change is not detected when the file is rewritten with the same size within the file system's modification time
+ * precision (as coarse as 1 or 2 seconds on some file systems); {@link #clear} forces the next load to parse again
+ * @author EdGruberman (ed@rjump.com)
+ * @version 1.0.0
+ */
+public final class ConfigurationCache {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /** @return new configuration populated with file contents; empty if file does not exist */
+    public YamlConfiguration load(final File file) {
+        final String path = file.getAbsolutePath();
+        final long modified = file.lastModified(); // 0 when file does not exist
+        final long length = file.length();
+
+        Entry entry = this.entries.get(path);
+        if (entry == null || !entry.matches(modified, length)) {
+            entry = new Entry(modified, length, ( modified == 0L ? null : YamlConfiguration.loadConfiguration(file) ));
+            this.entries.put(path, entry);
+        }
+
+        return entry.copy();
+    }
+
+    /** @return true if the next {@link #load} of file will not parse it */
+    public boolean isCurrent(final File file) {
+        final Entry entry = this.entries.get(file.getAbsolutePath());
+        return entry != null && entry.matches(file.lastModified(), file.length());
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+
+
+    /** leaf values and empty sections of a parsed file */
+    private static final class Entry {
+
+        private final long modified;
+        private final long length;
+        private final Map<String, Object> values;
+        private final List<String> empty;
+
+        private Entry(final long modified, final long length, final YamlConfiguration parsed) {
+            this.modified = modified;
+            this.length = length;
+
+            if (parsed == null) {
+                this.values = Collections.emptyMap();
+                this.empty = Collections.emptyList();
+                return;
+            }
+
+            final Map<String, Object> values = new LinkedHashMap<String, Object>();
+            final List<String> empty = new ArrayList<String>();
+            for (final Map.Entry<String, Object> value : parsed.getValues(true).entrySet()) {
+                if (!(value.getValue() instanceof ConfigurationSection)) {
+                    values.put(value.getKey(), value.getValue());
+                } else if (((ConfigurationSection) value.getValue()).getKeys(false).isEmpty()) {
+                    empty.add(value.getKey());
+                }
+            }
+
+            this.values = Collections.unmodifiableMap(values);
+            this.empty = Collections.unmodifiableList(empty);
+        }
+
+        private boolean matches(final long modified, final long length) {
+            return this.modified == modified && this.length == length;
+        }
+
+        private YamlConfiguration copy() {
+            final YamlConfiguration copy = new YamlConfiguration();
+            for (final String section : this.empty) copy.createSection(section);
+            for (final Map.Entry<String, Object> value : this.values.entrySet())
+                copy.set(value.getKey(), ( value.getValue() instanceof List ? new ArrayList<Object>((List<?>) value.getValue()) : value.getValue() ));
+
+            return copy;
+        }
+
+    }
+
+}
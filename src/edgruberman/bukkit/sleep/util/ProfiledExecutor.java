@@ -0,0 +1,84 @@
+package edgruberman.bukkit.sleep.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * calls a listener's event handler method and records the time taken with
+ * {@link Profiler}, so listeners registered directly with Bukkit are reported
+ * under their own label and world instead of only as part of the plugin
+ * @author EdGruberman (ed@rjump.com)
+ * @version 1.0.0
+ */
+public final class ProfiledExecutor implements EventExecutor {
+
+    /**
+     * register all event handler methods of a listener the same as
+     * {@link org.bukkit.plugin.PluginManager#registerEvents}, timing each call
+     * @param world null if not world specific
+     * @param label Class (reported by simple name) or other object identifying the listener
+     */
+    public static void registerEvents(final Listener listener, final Plugin plugin, final World world, final Object label) {
+        final Set<Method> methods = new HashSet<Method>(Arrays.asList(listener.getClass().getMethods()));
+        methods.addAll(Arrays.asList(listener.getClass().getDeclaredMethods()));
+
+        for (final Method method : methods) {
+            final EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null) continue;
+
+            final Class<?>[] parameters = method.getParameterTypes();
+            if (parameters.length != 1 || !Event.class.isAssignableFrom(parameters[0])) {
+                plugin.getLogger().log(Level.WARNING, "Invalid event handler {0} in {1}", new Object[] { method.getName(), listener.getClass().getName() });
+                continue;
+            }
+
+            method.setAccessible(true);
+            final Class<? extends Event> type = parameters[0].asSubclass(Event.class);
+            Bukkit.getPluginManager().registerEvent(type, listener, handler.priority(), new ProfiledExecutor(type, method, world, label), plugin, handler.ignoreCancelled());
+        }
+    }
+
+
+
+    private final Class<? extends Event> type;
+    private final Method method;
+    private final World world;
+    private final Object label;
+
+    private ProfiledExecutor(final Class<? extends Event> type, final Method method, final World world, final Object label) {
+        this.type = type;
+        this.method = method;
+        this.world = world;
+        this.label = label;
+    }
+
+    @Override
+    public void execute(final Listener listener, final Event event) throws EventException {
+        if (!this.type.isInstance(event)) return; // handler list shared with an unrelated subclass
+
+        final long start = Profiler.start();
+        try {
+            this.method.invoke(listener, event);
+        } catch (final InvocationTargetException e) {
+            throw new EventException(e.getCause());
+        } catch (final Exception e) {
+            throw new EventException(e);
+        } finally {
+            Profiler.record(this.world, this.label, start);
+        }
+    }
+
+}
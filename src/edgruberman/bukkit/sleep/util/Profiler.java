@@ -0,0 +1,183 @@
+package edgruberman.bukkit.sleep.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.bukkit.World;
+
+/**
+ * elapsed time histograms indexed by world and label; recording is lock-free
+ * and reduces to a single field check while disabled
+ * @author EdGruberman (ed@rjump.com)
+ * @version 1.0.0
+ */
+public final class Profiler {
+
+    /** world name used for entries not associated with a world */
+    public static final String GLOBAL = "*";
+
+    private static volatile boolean enabled = false;
+    private static volatile ConcurrentMap<String, ConcurrentMap<Object, Histogram>> recorded = new ConcurrentHashMap<String, ConcurrentMap<Object, Histogram>>();
+    private static volatile long since = System.nanoTime();
+
+    public static boolean isEnabled() {
+        return Profiler.enabled;
+    }
+
+    public static void setEnabled(final boolean enabled) {
+        if (enabled && !Profiler.enabled) Profiler.reset();
+        Profiler.enabled = enabled;
+    }
+
+    /** @return current time to pass to {@link #record}, or 0 when disabled */
+    public static long start() {
+        return ( Profiler.enabled ? System.nanoTime() : 0L );
+    }
+
+    /**
+     * @param world null if not world specific
+     * @param label Class (reported by simple name) or other object identifying what was timed
+     * @param start value returned from {@link #start}
+     */
+    public static void record(final World world, final Object label, final long start) {
+        if (start == 0L) return;
+        final long elapsed = System.nanoTime() - start;
+
+        final String name = ( world != null ? world.getName() : Profiler.GLOBAL );
+        final ConcurrentMap<String, ConcurrentMap<Object, Histogram>> recorded = Profiler.recorded;
+        ConcurrentMap<Object, Histogram> labels = recorded.get(name);
+        if (labels == null) {
+            final ConcurrentMap<Object, Histogram> created = new ConcurrentHashMap<Object, Histogram>();
+            labels = recorded.putIfAbsent(name, created);
+            if (labels == null) labels = created;
+        }
+
+        Histogram histogram = labels.get(label);
+        if (histogram == null) {
+            final Histogram created = new Histogram(( label instanceof Class<?> ? ((Class<?>) label).getSimpleName() : String.valueOf(label) ));
+            histogram = labels.putIfAbsent(label, created);
+            if (histogram == null) histogram = created;
+        }
+
+        histogram.record(elapsed);
+    }
+
+    /** @return nanoseconds since recording was last reset */
+    public static long elapsed() {
+        return System.nanoTime() - Profiler.since;
+    }
+
+    /** @return summaries of all recorded histograms, indexed by world name, after which recording starts over */
+    public static Map<String, List<Summary>> reset() {
+        final ConcurrentMap<String, ConcurrentMap<Object, Histogram>> previous = Profiler.recorded;
+        Profiler.recorded = new ConcurrentHashMap<String, ConcurrentMap<Object, Histogram>>();
+        Profiler.since = System.nanoTime();
+
+        final Map<String, List<Summary>> summaries = new TreeMap<String, List<Summary>>();
+        for (final Map.Entry<String, ConcurrentMap<Object, Histogram>> world : previous.entrySet()) {
+            final List<Summary> labels = new ArrayList<Summary>();
+            for (final Histogram histogram : world.getValue().values()) labels.add(histogram.summarize());
+            Collections.sort(labels);
+            summaries.put(world.getKey(), labels);
+        }
+        return summaries;
+    }
+
+
+
+    /** log-linear buckets of nanosecond durations; each power of two is split into 8 buckets (12.5% precision) */
+    private static final class Histogram {
+
+        private static final int SUB_BITS = 3;
+        private static final int SUB = 1 << Histogram.SUB_BITS;
+        private static final int BUCKETS = (63 - Histogram.SUB_BITS + 1) * Histogram.SUB;
+
+        private static int index(final long value) {
+            if (value < Histogram.SUB) return (int) Math.max(0, value);
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int sub = (int) (value >>> (exponent - Histogram.SUB_BITS)) & (Histogram.SUB - 1);
+            return (exponent - Histogram.SUB_BITS + 1) * Histogram.SUB + sub;
+        }
+
+        /** @return largest value counted in bucket */
+        private static long upper(final int index) {
+            if (index < Histogram.SUB) return index;
+            final int exponent = index / Histogram.SUB + Histogram.SUB_BITS - 1;
+            final int sub = index % Histogram.SUB;
+            return ((long) (Histogram.SUB + sub + 1) << (exponent - Histogram.SUB_BITS)) - 1;
+        }
+
+        private final String label;
+        private final AtomicLongArray counts = new AtomicLongArray(Histogram.BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(final String label) {
+            this.label = label;
+        }
+
+        private void record(final long elapsed) {
+            this.counts.incrementAndGet(Histogram.index(elapsed));
+
+            long current = this.max.get();
+            while (elapsed > current && !this.max.compareAndSet(current, elapsed)) current = this.max.get();
+        }
+
+        private Summary summarize() {
+            final long[] counts = new long[Histogram.BUCKETS];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.counts.get(i);
+                total += counts[i];
+            }
+
+            final long max = this.max.get();
+            return new Summary(this.label, total, Math.min(max, Histogram.percentile(counts, total, 0.50))
+                    , Math.min(max, Histogram.percentile(counts, total, 0.99)), max);
+        }
+
+        private static long percentile(final long[] counts, final long total, final double percentile) {
+            final long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) return Histogram.upper(i);
+            }
+            return 0;
+        }
+
+    }
+
+
+
+    /** recorded durations in nanoseconds */
+    public static final class Summary implements Comparable<Summary> {
+
+        public final String label;
+        public final long count;
+        public final long p50;
+        public final long p99;
+        public final long max;
+
+        private Summary(final String label, final long count, final long p50, final long p99, final long max) {
+            this.label = label;
+            this.count = count;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        @Override
+        public int compareTo(final Summary other) {
+            return this.label.compareTo(other.label);
+        }
+
+    }
+
+}